@@ -0,0 +1,130 @@
+package com.allendowney.thinkdast;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for the thread-safe maps: many threads share one map and
+ * do a mix of gets and writes on random keys.
+ *
+ * Compares MyConcurrentMap with a HashMap behind one global lock (the
+ * way our indexers shared MyBetterMap) and with ConcurrentHashMap, and
+ * MyConcurrentSkipListMap with a MyTreeMap behind one global lock and
+ * with ConcurrentSkipListMap.
+ *
+ * Half of the writes are puts and half are removes, and the map starts
+ * with every other key, so it stays about the same size.  The score is
+ * the total throughput of all threads, in operations per microsecond
+ * (millions per second).  Use -t to change the number of threads, for
+ * example -t 1, -t 16 or -t max, and -p to pick the maps or the mix,
+ * for example -p impl=MyConcurrentSkipListMap -p writePercent=5.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+public class ConcurrentMapBenchmark {
+
+	private static final int KEYS = 1 << 16;
+
+	@Param({"MyConcurrentMap", "SynchronizedHashMap", "ConcurrentHashMap",
+			"MyConcurrentSkipListMap", "SynchronizedMyTreeMap", "ConcurrentSkipListMap"})
+	public String impl;
+
+	@Param({"10", "50"})
+	public int writePercent;
+
+	private String[] keys;
+
+	// shared by all the threads
+	private Map<String, Integer> map;
+
+	/**
+	 * Each thread has its own cheap random sequence.
+	 */
+	@State(Scope.Thread)
+	public static class Random {
+		private int x;
+
+		@Setup
+		public void setup() {
+			x = ThreadLocalRandom.current().nextInt() | 1;
+		}
+
+		int next() {
+			x ^= x << 13;
+			x ^= x >>> 17;
+			x ^= x << 5;
+			return x;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		keys = new String[KEYS];
+		for (int i=0; i<KEYS; i++) {
+			keys[i] = String.format("%10d", i);
+		}
+		map = makeMap();
+		for (int i=0; i<KEYS; i+=2) {
+			map.put(keys[i], i);
+		}
+	}
+
+	private Map<String, Integer> makeMap() {
+		switch (impl) {
+		case "MyConcurrentMap":
+			return new MyConcurrentMap<String, Integer>();
+		case "SynchronizedHashMap":
+			return Collections.synchronizedMap(new HashMap<String, Integer>());
+		case "ConcurrentHashMap":
+			return new ConcurrentHashMap<String, Integer>();
+		case "MyConcurrentSkipListMap":
+			return new MyConcurrentSkipListMap<String, Integer>();
+		case "SynchronizedMyTreeMap":
+			return Collections.synchronizedMap(new MyTreeMap<String, Integer>());
+		case "ConcurrentSkipListMap":
+			return new ConcurrentSkipListMap<String, Integer>();
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	/**
+	 * Does one get, put or remove on a random key.
+	 */
+	@Benchmark
+	public Integer mix(Random random) {
+		int x = random.next();
+		String key = keys[x & (KEYS - 1)];
+		int dice = (x >>> 20) % 100;
+		if (dice < writePercent / 2) {
+			return map.put(key, x);
+		} else if (dice < writePercent) {
+			return map.remove(key);
+		}
+		return map.get(key);
+	}
+}
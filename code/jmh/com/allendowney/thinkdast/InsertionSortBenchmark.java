@@ -0,0 +1,58 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for ListSorter.insertionSort, at sizes where a
+ * quadratic sort finishes.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InsertionSortBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int size;
+
+	private final ListSorter<Integer> sorter = new ListSorter<Integer>();
+	private final Comparator<Integer> comparator = Comparator.naturalOrder();
+
+	private Integer[] data;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(17);
+		data = new Integer[size];
+		for (int i=0; i<size; i++) {
+			data[i] = random.nextInt();
+		}
+	}
+
+	@Benchmark
+	public List<Integer> insertionSort() {
+		List<Integer> list = new ArrayList<Integer>(Arrays.asList(data));
+		sorter.insertionSort(list, comparator);
+		return list;
+	}
+}
@@ -0,0 +1,110 @@
+package com.allendowney.thinkdast;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for MyArrayList and MyLinkedList.
+ *
+ * Run with `ant jmh`; see build.xml.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ListBenchmark {
+
+	@Param({"MyArrayList", "MyLinkedList"})
+	public String impl;
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	// a full list for the benchmarks that only read
+	private List<Integer> full;
+
+	// the same Integers every time, so we don't time boxing
+	private Integer[] elements;
+
+	@Setup
+	public void setup() {
+		elements = new Integer[size];
+		for (int i=0; i<size; i++) {
+			elements[i] = i;
+		}
+		full = makeList();
+		for (Integer element: elements) {
+			full.add(element);
+		}
+	}
+
+	private List<Integer> makeList() {
+		switch (impl) {
+		case "MyArrayList":
+			return new MyArrayList<Integer>();
+		case "MyLinkedList":
+			return new MyLinkedList<Integer>();
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	/**
+	 * Builds a list of `size` elements by adding at the end.
+	 */
+	@Benchmark
+	public List<Integer> addEnd() {
+		List<Integer> list = makeList();
+		for (Integer element: elements) {
+			list.add(element);
+		}
+		return list;
+	}
+
+	/**
+	 * Builds a list of `size` elements by adding at the beginning.
+	 */
+	@Benchmark
+	public List<Integer> addBeginning() {
+		List<Integer> list = makeList();
+		for (Integer element: elements) {
+			list.add(0, element);
+		}
+		return list;
+	}
+
+	/**
+	 * Reads the element in the middle, which is the worst case for
+	 * MyLinkedList.
+	 */
+	@Benchmark
+	public Integer getMiddle() {
+		return full.get(size / 2);
+	}
+
+	/**
+	 * Iterates through the whole list.
+	 */
+	@Benchmark
+	public void iterate(Blackhole bh) {
+		for (Integer element: full) {
+			bh.consume(element);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.allendowney.thinkdast;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for the Map implementations.
+ *
+ * Unlike ProfileMapPut, the keys are made in setup(), so String.format
+ * is not part of what we measure.
+ *
+ * MyLinearMap is quadratic to fill, so the default sizes are modest;
+ * use -p size=... to try others.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MapBenchmark {
+
+	@Param({"MyLinearMap", "MyBetterMap", "MyHashMap", "MyFixedHashMap", "MyTreeMap"})
+	public String impl;
+
+	@Param({"100", "10000"})
+	public int size;
+
+	private String[] keys;
+	private String[] missingKeys;
+
+	// a full map for the benchmarks that only read
+	private Map<String, Integer> full;
+
+	@Setup
+	public void setup() {
+		keys = new String[size];
+		missingKeys = new String[size];
+		for (int i=0; i<size; i++) {
+			keys[i] = String.format("%10d", i);
+			missingKeys[i] = String.format("%10d", -i-1);
+		}
+		full = makeMap();
+		for (int i=0; i<size; i++) {
+			full.put(keys[i], i);
+		}
+	}
+
+	private Map<String, Integer> makeMap() {
+		switch (impl) {
+		case "MyLinearMap":
+			return new MyLinearMap<String, Integer>();
+		case "MyBetterMap":
+			return new MyBetterMap<String, Integer>();
+		case "MyHashMap":
+			return new MyHashMap<String, Integer>();
+		case "MyFixedHashMap":
+			return new MyFixedHashMap<String, Integer>();
+		case "MyTreeMap":
+			return new MyTreeMap<String, Integer>();
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	/**
+	 * Fills an empty map with `size` keys.
+	 */
+	@Benchmark
+	public Map<String, Integer> put() {
+		Map<String, Integer> map = makeMap();
+		for (int i=0; i<keys.length; i++) {
+			map.put(keys[i], i);
+		}
+		return map;
+	}
+
+	/**
+	 * Looks up every key in a full map.
+	 */
+	@Benchmark
+	public void get(Blackhole bh) {
+		for (String key: keys) {
+			bh.consume(full.get(key));
+		}
+	}
+
+	/**
+	 * Looks up keys that are not in the map.
+	 */
+	@Benchmark
+	public void getMissing(Blackhole bh) {
+		for (String key: missingKeys) {
+			bh.consume(full.containsKey(key));
+		}
+	}
+}
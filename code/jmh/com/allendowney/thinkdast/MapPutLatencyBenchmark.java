@@ -0,0 +1,98 @@
+package com.allendowney.thinkdast;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for the latency of individual puts, rather than the
+ * total time of a loop, so the cost of rehashing shows up in the high
+ * percentiles.
+ *
+ * Compares MyHashMap, which rehashes everything inside one put, with
+ * MyIncrementalHashMap, which spreads the work over later operations.
+ *
+ * Each invocation puts the next of `size` keys; after the last one the
+ * map starts over, empty.  JMH reports p50, p99, p99.9 and the max.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MapPutLatencyBenchmark {
+
+	@Param({"MyHashMap", "MyIncrementalHashMap", "HashMap"})
+	public String impl;
+
+	@Param({"131072"})
+	public int size;
+
+	// the keys and values are made ahead of time, so we don't time
+	// String.format or boxing
+	private String[] keys;
+	private Integer[] values;
+
+	private Map<String, Integer> map;
+	private int next;
+
+	@Setup
+	public void setup() {
+		keys = new String[size];
+		values = new Integer[size];
+		for (int i=0; i<size; i++) {
+			keys[i] = String.format("%10d", i);
+			values[i] = i;
+		}
+		map = makeMap();
+	}
+
+	/**
+	 * Starts over with an empty map once every key is in.  Runs before
+	 * each put, outside the timed part.
+	 */
+	@Setup(Level.Invocation)
+	public void startOver() {
+		if (next == size) {
+			map = makeMap();
+			next = 0;
+		}
+	}
+
+	private Map<String, Integer> makeMap() {
+		switch (impl) {
+		case "MyHashMap":
+			return new MyHashMap<String, Integer>();
+		case "MyIncrementalHashMap":
+			return new MyIncrementalHashMap<String, Integer>();
+		case "HashMap":
+			return new HashMap<String, Integer>();
+		default:
+			throw new IllegalArgumentException(impl);
+		}
+	}
+
+	/**
+	 * Puts one new key.
+	 */
+	@Benchmark
+	public Integer put() {
+		int i = next++;
+		return map.put(keys[i], values[i]);
+	}
+}
@@ -0,0 +1,124 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks that compare IntArrayList and LongArrayList with
+ * MyArrayList and java.util.ArrayList: the time to add `size` elements,
+ * and the time to read them all back.
+ *
+ * The boxed lists box each element as it is added, which is part of
+ * what they cost.  To see the bytes allocated per list, run with
+ * -prof gc and look at gc.alloc.rate.norm.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PrimitiveListBenchmark {
+
+	@Param({"1000", "1000000"})
+	public int size;
+
+	// full lists for the benchmarks that only read
+	private IntArrayList ints;
+	private LongArrayList longs;
+	private List<Integer> myArrayList;
+	private List<Integer> arrayList;
+
+	@Setup
+	public void setup() {
+		ints = intArrayListAdd();
+		longs = longArrayListAdd();
+		myArrayList = fill(new MyArrayList<Integer>());
+		arrayList = fill(new ArrayList<Integer>());
+	}
+
+	private List<Integer> fill(List<Integer> list) {
+		for (int i=0; i<size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+
+	private static long sum(List<Integer> list) {
+		long sum = 0;
+		for (int i=0; i<list.size(); i++) {
+			sum += list.get(i);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public IntArrayList intArrayListAdd() {
+		IntArrayList list = new IntArrayList();
+		for (int i=0; i<size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+
+	@Benchmark
+	public LongArrayList longArrayListAdd() {
+		LongArrayList list = new LongArrayList();
+		for (int i=0; i<size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> myArrayListAdd() {
+		return fill(new MyArrayList<Integer>());
+	}
+
+	@Benchmark
+	public List<Integer> arrayListAdd() {
+		return fill(new ArrayList<Integer>());
+	}
+
+	@Benchmark
+	public long intArrayListGet() {
+		long sum = 0;
+		for (int i=0; i<ints.size(); i++) {
+			sum += ints.get(i);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long longArrayListGet() {
+		long sum = 0;
+		for (int i=0; i<longs.size(); i++) {
+			sum += longs.get(i);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long myArrayListGet() {
+		return sum(myArrayList);
+	}
+
+	@Benchmark
+	public long arrayListGet() {
+		return sum(arrayList);
+	}
+}
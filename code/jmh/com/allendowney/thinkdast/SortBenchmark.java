@@ -0,0 +1,203 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the algorithms in ListSorter.
+ *
+ * Each benchmark sorts a fresh copy of the same random data, so the
+ * time includes one O(n) copy.  Collections.sort and Arrays.sort are
+ * included for comparison.
+ *
+ * The ints are sorted two ways: values from 0 to 999 (like term
+ * counts), where counting sort applies and radix sort skips its
+ * high-byte passes, and random 32-bit values.
+ *
+ * insertionSort is quadratic, so it is in InsertionSortBenchmark,
+ * with smaller sizes.
+ *
+ * parallelMergeSort uses the common ForkJoinPool, which has one thread
+ * per core by default; to try other thread counts, pass for example
+ * -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=4.
+ * Larger sizes can be given with -p size=10000000, but 100M boxed
+ * Integers need several GB of heap (-jvmArgsAppend -Xmx8g).
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SortBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private final ListSorter<Integer> sorter = new ListSorter<Integer>();
+	private final Comparator<Integer> comparator = Comparator.naturalOrder();
+
+	private Integer[] data;
+	private int[] ints;
+	private int[] wideInts;
+	private long[] longs;
+	private String[] words;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(17);
+		data = new Integer[size];
+		ints = new int[size];
+		longs = new long[size];
+		wideInts = new int[size];
+		words = new String[size];
+		for (int i=0; i<size; i++) {
+			ints[i] = random.nextInt(1000);
+			data[i] = ints[i];
+			longs[i] = random.nextLong();
+			words[i] = Long.toString(longs[i] & Long.MAX_VALUE, 36);
+		}
+		for (int i=0; i<size; i++) {
+			wideInts[i] = random.nextInt();
+		}
+	}
+
+	private List<Integer> copy() {
+		return new ArrayList<Integer>(Arrays.asList(data));
+	}
+
+	@Benchmark
+	public List<Integer> collectionsSort() {
+		List<Integer> list = copy();
+		list.sort(comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> mergeSort() {
+		return sorter.mergeSort(copy(), comparator);
+	}
+
+	@Benchmark
+	public List<Integer> mergeSortInPlace() {
+		List<Integer> list = copy();
+		sorter.mergeSortInPlace(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public Integer[] mergeSortArray() {
+		Integer[] array = data.clone();
+		sorter.mergeSort(array, comparator);
+		return array;
+	}
+
+	@Benchmark
+	public List<Integer> parallelMergeSort() {
+		return sorter.parallelMergeSort(copy(), comparator);
+	}
+
+	@Benchmark
+	public List<Integer> heapSort() {
+		List<Integer> list = copy();
+		sorter.heapSort(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> topK() {
+		return sorter.topK(10, Arrays.asList(data), comparator);
+	}
+
+	@Benchmark
+	public List<Integer> parallelTopK() {
+		return sorter.parallelTopK(10, Arrays.asList(data), comparator);
+	}
+
+	@Benchmark
+	public List<Integer> countingSortList() {
+		List<Integer> list = copy();
+		sorter.countingSort(list, x -> x, 0, 999);
+		return list;
+	}
+
+	@Benchmark
+	public int[] arraysSortInts() {
+		int[] array = ints.clone();
+		Arrays.sort(array);
+		return array;
+	}
+
+	@Benchmark
+	public int[] radixSortInts() {
+		int[] array = ints.clone();
+		ListSorter.radixSort(array);
+		return array;
+	}
+
+	@Benchmark
+	public int[] countingSortInts() {
+		int[] array = ints.clone();
+		ListSorter.countingSort(array, 0, 999);
+		return array;
+	}
+
+	@Benchmark
+	public int[] arraysSortWideInts() {
+		int[] array = wideInts.clone();
+		Arrays.sort(array);
+		return array;
+	}
+
+	@Benchmark
+	public int[] radixSortWideInts() {
+		int[] array = wideInts.clone();
+		ListSorter.radixSort(array);
+		return array;
+	}
+
+	@Benchmark
+	public long[] radixSortLongs() {
+		long[] array = longs.clone();
+		ListSorter.radixSort(array);
+		return array;
+	}
+
+	@Benchmark
+	public String[] arraysSortStrings() {
+		String[] array = words.clone();
+		Arrays.sort(array);
+		return array;
+	}
+
+	@Benchmark
+	public String[] mergeSortStrings() {
+		String[] array = words.clone();
+		new ListSorter<String>().mergeSort(array, Comparator.<String>naturalOrder());
+		return array;
+	}
+
+	@Benchmark
+	public List<String> radixSortStrings() {
+		List<String> list = new ArrayList<String>(Arrays.asList(words));
+		ListSorter.radixSort(list);
+		return list;
+	}
+}
@@ -0,0 +1,139 @@
+package com.allendowney.thinkdast;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter for strings: a set that uses a fixed number of bits no
+ * matter how long the strings are, at the cost of sometimes saying it
+ * contains a string that was never added.  It never says it doesn't
+ * contain a string that was added.
+ *
+ * Each string sets k bits, chosen by k hash functions; a string might
+ * be in the set only if all k of its bits are set.  The number of bits
+ * and k are chosen from the expected number of strings and the false
+ * positive rate we are willing to accept: about 9.6 bits per string and
+ * k = 7 for 1%.
+ *
+ * The k hash functions are h1 + i * h2, where h1 and h2 are the two
+ * halves of one 64-bit hash (Kirsch and Mitzenmacher), so each string
+ * is hashed once.  The bits are in an AtomicLongArray, so several
+ * threads can use the filter at once.
+ *
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray words;
+	private final long bits;
+	private final int k;
+
+	/**
+	 * @param expectedInsertions how many strings we expect to add
+	 * @param fpp the false positive rate we want after that many
+	 */
+	public BloomFilter(long expectedInsertions, double fpp) {
+		if (expectedInsertions < 1) {
+			throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+		}
+		if (!(fpp > 0 && fpp < 1)) {
+			throw new IllegalArgumentException("fpp must be between 0 and 1: " + fpp);
+		}
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (ln2 * ln2));
+		int nwords = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+		this.words = new AtomicLongArray(nwords);
+		this.bits = nwords * 64L;
+		this.k = Math.max(1, (int) Math.round((double) bits / expectedInsertions * ln2));
+	}
+
+	/**
+	 * Hashes the characters of `s` with 64-bit FNV-1a, then mixes the
+	 * result with the MurmurHash3 finalizer so all 64 bits depend on
+	 * every character.
+	 *
+	 * @param s
+	 * @return
+	 */
+	static long hash64(CharSequence s) {
+		long h = 0xcbf29ce484222325L;
+		for (int i=0; i<s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Adds a string.
+	 *
+	 * @param s
+	 * @return true if this set a bit, so the string was certainly not
+	 *         in the filter before
+	 */
+	public boolean put(CharSequence s) {
+		long h = hash64(s);
+		long h1 = (int) h;
+		long h2 = (int) (h >>> 32);
+		boolean changed = false;
+		for (int i=0; i<k; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+			int index = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			if ((words.get(index) & mask) == 0) {
+				long old = words.getAndAccumulate(index, mask, (a, b) -> a | b);
+				changed |= (old & mask) == 0;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @param s
+	 * @return false if the string was certainly never added; true if it
+	 *         probably was
+	 */
+	public boolean mightContain(CharSequence s) {
+		long h = hash64(s);
+		long h1 = (int) h;
+		long h2 = (int) (h >>> 32);
+		for (int i=0; i<k; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of bits
+	 */
+	public long bitSize() {
+		return bits;
+	}
+
+	/**
+	 * @return the number of hash functions
+	 */
+	public int hashFunctions() {
+		return k;
+	}
+
+	/**
+	 * Estimates the current false positive rate from the fraction of
+	 * bits that are set.
+	 *
+	 * @return
+	 */
+	public double expectedFpp() {
+		long set = 0;
+		for (int i=0; i<words.length(); i++) {
+			set += Long.bitCount(words.get(i));
+		}
+		return Math.pow((double) set / bits, k);
+	}
+}
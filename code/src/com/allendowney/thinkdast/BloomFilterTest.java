@@ -0,0 +1,75 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for BloomFilter.
+ *
+ */
+public class BloomFilterTest {
+
+	/**
+	 * Test method for {@link BloomFilter#BloomFilter(long, double)}.
+	 */
+	@Test
+	public void testSize() {
+		BloomFilter bloom = new BloomFilter(1000, 0.01);
+		// about 9.6 bits per string, rounded up to whole words
+		assertThat(bloom.bitSize(), is(9600L));
+		assertThat(bloom.hashFunctions(), is(7));
+		assertThat(bloom.expectedFpp(), is(0.0));
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#BloomFilter(long, double)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadFpp() {
+		new BloomFilter(1000, 1.0);
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#put(CharSequence)}.
+	 */
+	@Test
+	public void testPut() {
+		BloomFilter bloom = new BloomFilter(100, 0.01);
+		assertThat(bloom.mightContain("Java"), is(false));
+		assertThat(bloom.put("Java"), is(true));
+		assertThat(bloom.put("Java"), is(false));
+		assertThat(bloom.mightContain("Java"), is(true));
+		assertThat(bloom.mightContain(new StringBuilder("Java")), is(true));
+		assertThat(bloom.mightContain("java"), is(false));
+		assertThat(bloom.put(""), is(true));
+		assertThat(bloom.mightContain(""), is(true));
+	}
+
+	/**
+	 * Test method for {@link BloomFilter#mightContain(CharSequence)}.
+	 */
+	@Test
+	public void testFalsePositiveRate() {
+		int n = 10000;
+		BloomFilter bloom = new BloomFilter(n, 0.01);
+		for (int i=0; i<n; i++) {
+			bloom.put("https://en.wikipedia.org/wiki/Page_" + i);
+		}
+		// no false negatives
+		for (int i=0; i<n; i++) {
+			assertThat(bloom.mightContain("https://en.wikipedia.org/wiki/Page_" + i), is(true));
+		}
+		// and about 1% false positives
+		int positives = 0;
+		for (int i=n; i<n*11; i++) {
+			if (bloom.mightContain("https://en.wikipedia.org/wiki/Page_" + i)) {
+				positives++;
+			}
+		}
+		double rate = (double) positives / (n*10);
+		assertThat(rate < 0.02, is(true));
+		assertThat(Math.abs(bloom.expectedFpp() - 0.01) < 0.005, is(true));
+	}
+}
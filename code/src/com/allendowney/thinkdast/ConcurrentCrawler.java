@@ -0,0 +1,249 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * Crawls pages with a pool of worker threads.
+ *
+ * WikiCrawler.crawl() fetches, parses and indexes one page per call, so
+ * most of the time it is waiting for the network.  Here each worker takes
+ * a URL from a shared Frontier, fetches and indexes the page, and offers
+ * the internal links it finds, so while one worker waits for a page the
+ * others are parsing and indexing.
+ *
+ * Where the pages come from and where they go are up to the caller, so
+ * the same crawler works with WikiFetcher and JedisIndex, or with
+ * LocalWiki and an in-memory Index.  The sink has to be thread-safe.
+ *
+ */
+public class ConcurrentCrawler {
+
+	/**
+	 * Gets the paragraphs of a page.
+	 */
+	public interface PageSource {
+		Elements fetch(String url) throws IOException;
+	}
+
+	/**
+	 * Does something with the paragraphs of a page, like indexing them.
+	 *
+	 * Called from many threads at once.
+	 */
+	public interface PageSink {
+		void indexPage(String url, Elements paragraphs) throws IOException;
+	}
+
+	public static final int DEFAULT_FRONTIER_CAPACITY = 10000;
+
+	// how many URLs we expect to see, used to size the seen filter
+	public static final int DEFAULT_EXPECTED_URLS = 1000000;
+
+	// how long a worker waits for room in a full frontier before dropping a link
+	public static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	// internal links are relative; this goes in front, like https://en.wikipedia.org
+	private final String base;
+	private final PageSource source;
+	private final PageSink sink;
+	private final Frontier frontier;
+	private final SeenUrls seen;
+
+	// pages workers have started on, so we stop at maxPages
+	private final AtomicInteger claimed = new AtomicInteger();
+	private final AtomicInteger pages = new AtomicInteger();
+	private final AtomicInteger errors = new AtomicInteger();
+
+	/**
+	 * @param base prefix for internal links
+	 * @param source
+	 * @param sink
+	 * @param frontierCapacity
+	 */
+	public ConcurrentCrawler(String base, PageSource source, PageSink sink, int frontierCapacity) {
+		this(base, source, sink, frontierCapacity, new SeenUrls(DEFAULT_EXPECTED_URLS));
+	}
+
+	/**
+	 * @param base prefix for internal links
+	 * @param source
+	 * @param sink
+	 * @param frontierCapacity
+	 * @param seen URLs that have already been queued
+	 */
+	public ConcurrentCrawler(String base, PageSource source, PageSink sink, int frontierCapacity,
+			SeenUrls seen) {
+		this.base = base;
+		this.source = source;
+		this.sink = sink;
+		this.frontier = new Frontier(frontierCapacity);
+		this.seen = seen;
+	}
+
+	/**
+	 * Adds a URL to the frontier, unless it has been seen before.
+	 *
+	 * @param url
+	 * @return whether it was added
+	 */
+	public boolean seed(String url) {
+		String normal = seen.addIfNew(url);
+		if (normal == null) {
+			return false;
+		}
+		if (!frontier.offer(normal)) {
+			seen.forget(normal);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Crawls with `threads` workers until `maxPages` pages have been
+	 * tried or the frontier runs out.
+	 *
+	 * @param threads
+	 * @param maxPages
+	 * @return the number of pages indexed
+	 * @throws InterruptedException
+	 */
+	public int crawl(int threads, int maxPages) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int i=0; i<threads; i++) {
+			pool.execute(() -> work(maxPages));
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+				// keep waiting
+			}
+		} catch (InterruptedException e) {
+			frontier.close();
+			pool.shutdownNow();
+			throw e;
+		}
+		return pages.get();
+	}
+
+	/**
+	 * The loop each worker runs.
+	 *
+	 * @param maxPages
+	 */
+	private void work(int maxPages) {
+		try {
+			String url;
+			while ((url = frontier.take()) != null) {
+				try {
+					if (claimed.incrementAndGet() > maxPages) {
+						frontier.close();
+						continue;
+					}
+					Elements paragraphs = source.fetch(url);
+					sink.indexPage(url, paragraphs);
+					pages.incrementAndGet();
+					queueInternalLinks(paragraphs);
+				} catch (IOException | RuntimeException e) {
+					// one bad page shouldn't stop the crawl
+					errors.incrementAndGet();
+				} finally {
+					frontier.done();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Offers the internal links in `paragraphs` to the frontier, skipping
+	 * links that have been seen before.
+	 *
+	 * A link the frontier drops is forgotten, so it can be queued again
+	 * if another page links to it.
+	 *
+	 * @param paragraphs
+	 * @throws InterruptedException
+	 */
+	void queueInternalLinks(Elements paragraphs) throws InterruptedException {
+		for (Element paragraph: paragraphs) {
+			for (Element elt: paragraph.select("a[href]")) {
+				String relURL = elt.attr("href");
+				if (!relURL.startsWith("/wiki/")) {
+					continue;
+				}
+				String url = seen.addIfNew(base + relURL);
+				if (url != null && !frontier.offer(url, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					seen.forget(url);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of pages indexed
+	 */
+	public int pages() {
+		return pages.get();
+	}
+
+	/**
+	 * @return the number of pages that could not be fetched or indexed
+	 */
+	public int errors() {
+		return errors.get();
+	}
+
+	/**
+	 * @return the URLs that have been queued
+	 */
+	public SeenUrls seen() {
+		return seen;
+	}
+
+	/**
+	 * @return the frontier
+	 */
+	public Frontier frontier() {
+		return frontier;
+	}
+
+	/**
+	 * @param args
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		// Jedis is not thread-safe, so the workers take turns indexing
+		Jedis jedis = JedisMaker.make();
+		JedisIndex index = new JedisIndex(jedis);
+		WikiFetcher wf = new WikiFetcher();
+		PageSink sink = (url, paragraphs) -> {
+			synchronized (index) {
+				index.indexPage(url, paragraphs);
+			}
+		};
+		ConcurrentCrawler crawler = new ConcurrentCrawler("https://en.wikipedia.org",
+				wf::fetchWikipedia, sink, DEFAULT_FRONTIER_CAPACITY);
+		crawler.seed("https://en.wikipedia.org/wiki/Music");
+		int pages = crawler.crawl(4, 10);
+		System.out.println("Indexed " + pages + " pages");
+		System.out.println("Waited " + wf.scheduler().stats());
+
+		Map<String, Integer> map = index.getCounts("the");
+		for (Entry<String, Integer> entry: map.entrySet()) {
+			System.out.println(entry);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentCrawler, against a LocalWiki.
+ *
+ */
+public class ConcurrentCrawlerTest {
+
+	private LocalWiki wiki;
+	private Index index;
+	private WikiFetcher wf;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		wiki = new LocalWiki(new File(LocalWiki.DEFAULT_DIR), 0, true);
+		index = new Index();
+		wf = new WikiFetcher(0);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		wiki.close();
+	}
+
+	/**
+	 * Test method for {@link ConcurrentCrawler#crawl(int, int)}.
+	 */
+	@Test
+	public void testOnePage() throws InterruptedException {
+		ConcurrentCrawler crawler = new ConcurrentCrawler(wiki.baseUrl(), wf::readWikipedia,
+				index::indexPage, 1000);
+		String url = wiki.url("Java_(programming_language)");
+		crawler.seed(url);
+		assertThat(crawler.crawl(1, 1), is(1));
+
+		// same count as WikiCrawlerTest
+		Set<TermCounter> set = index.get("the");
+		assertThat(set.size(), is(1));
+		TermCounter tc = set.iterator().next();
+		assertThat(tc.getLabel(), is(url));
+		assertThat(tc.get("the"), is(339));
+		assertThat(crawler.frontier().size() > 0, is(true));
+	}
+
+	/**
+	 * Test method for {@link ConcurrentCrawler#crawl(int, int)}.
+	 */
+	@Test
+	public void testManyWorkers() throws InterruptedException {
+		// a small frontier, so workers have to wait for room and drop links
+		ConcurrentCrawler crawler = new ConcurrentCrawler(wiki.baseUrl(), wf::readWikipedia,
+				index::indexPage, 50);
+		crawler.seed(wiki.url("Java_(programming_language)"));
+		int pages = crawler.crawl(8, 40);
+		assertThat(pages, is(40));
+		assertThat(crawler.errors(), is(0));
+		assertThat(crawler.frontier().dropped() > 0, is(true));
+		assertThat(wiki.requests(), is(40));
+		assertThat(crawler.seen().duplicates() > 0, is(true));
+	}
+
+	/**
+	 * Test method for {@link ConcurrentCrawler#queueInternalLinks(Elements)}.
+	 */
+	@Test
+	public void testDroppedLinkQueuedAgain() throws InterruptedException {
+		ConcurrentCrawler crawler = new ConcurrentCrawler(wiki.baseUrl(), wf::readWikipedia,
+				index::indexPage, 1);
+		assertThat(crawler.seed(wiki.url("Philosophy")), is(true));
+
+		// the frontier is full, so the link is dropped and forgotten
+		Elements paragraphs = Jsoup.parse("<p><a href=\"/wiki/Logic\">logic</a></p>").select("p");
+		String url = wiki.url("Logic");
+		crawler.queueInternalLinks(paragraphs);
+		assertThat(crawler.frontier().dropped(), is(1L));
+		assertThat(crawler.seen().contains(url), is(false));
+
+		// once there is room, another page can queue it
+		crawler.frontier().take();
+		crawler.frontier().done();
+		crawler.queueInternalLinks(paragraphs);
+		assertThat(crawler.seen().contains(url), is(true));
+		assertThat(crawler.frontier().take(), is(SeenUrls.normalize(url)));
+	}
+
+	/**
+	 * Test method for {@link ConcurrentCrawler#seed(String)}.
+	 */
+	@Test
+	public void testSeedOnce() throws InterruptedException, IOException {
+		try (LocalWiki strict = new LocalWiki(new File(LocalWiki.DEFAULT_DIR), 0, false)) {
+			ConcurrentCrawler crawler = new ConcurrentCrawler(strict.baseUrl(), wf::readWikipedia,
+					index::indexPage, 1000);
+			assertThat(crawler.seed(strict.url("Philosophy")), is(true));
+			assertThat(crawler.seed(strict.url("Philosophy#History")), is(false));
+			assertThat(crawler.frontier().size(), is(1));
+
+			// the saved pages link to each other, but each is fetched once
+			crawler.crawl(2, 10000);
+			assertThat(strict.requests(), is(crawler.pages() + crawler.errors()));
+			assertThat(index.get("the").size(), is(crawler.pages()));
+		}
+	}
+
+	/**
+	 * Test method for {@link ConcurrentCrawler#crawl(int, int)}.
+	 */
+	@Test
+	public void testErrors() throws InterruptedException, IOException {
+		try (LocalWiki strict = new LocalWiki(new File(LocalWiki.DEFAULT_DIR), 0, false)) {
+			ConcurrentCrawler crawler = new ConcurrentCrawler(strict.baseUrl(), wf::readWikipedia,
+					index::indexPage, 1000);
+			crawler.seed(strict.url("No_such_page"));
+			crawler.seed(strict.url("Philosophy"));
+			crawler.crawl(2, 2);
+			assertThat(crawler.pages(), is(1));
+			assertThat(crawler.errors(), is(1));
+		}
+	}
+}
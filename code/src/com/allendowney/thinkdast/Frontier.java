@@ -0,0 +1,195 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe, bounded queue of URLs waiting to be crawled.
+ *
+ * Workers take a URL, crawl it, offer the links they find, and then call
+ * done().  When the queue is full, offer() waits for a worker to take
+ * something, which slows down the workers that are finding links until
+ * the others catch up.  Since the workers are also the only consumers,
+ * a worker doesn't wait if every other worker is already waiting to
+ * offer, since then none would be left to take; and no one waits longer
+ * than the timeout.  A URL that can't be added is dropped and counted.
+ *
+ * take() returns null when the crawl is over: either close() was called,
+ * or the queue is empty and no worker is still crawling a page (which
+ * might add more URLs).
+ *
+ */
+public class Frontier {
+
+	private final ArrayDeque<String> queue = new ArrayDeque<String>();
+	private final int capacity;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	// all guarded by lock
+	private int active = 0;          // URLs taken but not done
+	private int offering = 0;        // threads waiting in offer
+	private boolean closed = false;
+	private long dropped = 0;
+
+	/**
+	 * @param capacity the most URLs the frontier holds at once
+	 */
+	public Frontier(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a URL if there is room, without waiting.
+	 *
+	 * @param url
+	 * @return whether the URL was added
+	 */
+	public boolean offer(String url) {
+		lock.lock();
+		try {
+			if (closed || queue.size() >= capacity) {
+				dropped++;
+				return false;
+			}
+			queue.addLast(url);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds a URL, waiting up to `timeout` for room.
+	 *
+	 * @param url
+	 * @param timeout
+	 * @param unit
+	 * @return whether the URL was added
+	 * @throws InterruptedException
+	 */
+	public boolean offer(String url, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (!closed && queue.size() >= capacity) {
+				// if every worker with a URL is waiting here, nobody will take
+				if (nanos <= 0 || (active > 0 && offering + 1 >= active)) {
+					dropped++;
+					return false;
+				}
+				offering++;
+				try {
+					nanos = notFull.awaitNanos(nanos);
+				} finally {
+					offering--;
+				}
+			}
+			if (closed) {
+				dropped++;
+				return false;
+			}
+			queue.addLast(url);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the next URL, waiting if the queue is empty but other
+	 * workers might still add URLs.
+	 *
+	 * The caller must call done() when it has finished with the URL.
+	 *
+	 * @return the next URL, or null if the crawl is over
+	 * @throws InterruptedException
+	 */
+	public String take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (!closed && queue.isEmpty()) {
+				if (active == 0) {
+					// nobody is left to add anything
+					notEmpty.signalAll();
+					return null;
+				}
+				notEmpty.await();
+			}
+			if (closed) {
+				return null;
+			}
+			String url = queue.removeFirst();
+			active++;
+			notFull.signal();
+			return url;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reports that a URL returned by take() has been crawled.
+	 */
+	public void done() {
+		lock.lock();
+		try {
+			active--;
+			// waiting offers check whether anyone is left to take
+			notFull.signalAll();
+			if (active == 0 && queue.isEmpty()) {
+				// wake the waiting workers so they can see the crawl is over
+				notEmpty.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Ends the crawl: take() returns null and offer() drops everything.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of URLs waiting
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of URLs dropped because the frontier was full or closed
+	 */
+	public long dropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
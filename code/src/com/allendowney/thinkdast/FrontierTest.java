@@ -0,0 +1,156 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for Frontier.
+ *
+ */
+public class FrontierTest {
+
+	/**
+	 * Test method for {@link Frontier#offer(String)}.
+	 */
+	@Test
+	public void testOfferAndTake() throws InterruptedException {
+		Frontier frontier = new Frontier(2);
+		assertThat(frontier.offer("a"), is(true));
+		assertThat(frontier.offer("b"), is(true));
+		assertThat(frontier.offer("c"), is(false));
+		assertThat(frontier.offer("c", 10, TimeUnit.MILLISECONDS), is(false));
+		assertThat(frontier.dropped(), is(2L));
+
+		assertThat(frontier.take(), is("a"));
+		assertThat(frontier.size(), is(1));
+		frontier.done();
+		assertThat(frontier.take(), is("b"));
+		frontier.done();
+
+		// empty, and nobody is crawling, so the crawl is over
+		assertThat(frontier.take(), nullValue());
+	}
+
+	/**
+	 * Test method for {@link Frontier#take()}.
+	 */
+	@Test
+	public void testTakeWaitsForActive() throws InterruptedException {
+		final Frontier frontier = new Frontier(10);
+		frontier.offer("a");
+		assertThat(frontier.take(), is("a"));
+
+		// another worker waits, because "a" might have links
+		final String[] result = new String[1];
+		Thread worker = new Thread(() -> {
+			try {
+				result[0] = frontier.take();
+			} catch (InterruptedException e) {
+				// test fails below
+			}
+		});
+		worker.start();
+		Thread.sleep(50);
+		assertThat(worker.isAlive(), is(true));
+
+		frontier.offer("b");
+		frontier.done();
+		worker.join(5000);
+		assertThat(result[0], is("b"));
+	}
+
+	/**
+	 * Test method for {@link Frontier#offer(String, long, TimeUnit)}.
+	 */
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		final Frontier frontier = new Frontier(1);
+		frontier.offer("a");
+
+		// the offer waits until a worker takes "a"
+		Thread taker = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+				frontier.take();
+			} catch (InterruptedException e) {
+				// test fails below
+			}
+		});
+		taker.start();
+		assertThat(frontier.offer("b", 5, TimeUnit.SECONDS), is(true));
+		taker.join();
+		assertThat(frontier.dropped(), is(0L));
+
+		frontier.close();
+		assertThat(frontier.take(), nullValue());
+		assertThat(frontier.offer("c"), is(false));
+	}
+
+	/**
+	 * Workers that each add two URLs per URL, up to a limit, should
+	 * process every URL once and all finish.
+	 */
+	@Test
+	public void testWorkers() throws InterruptedException {
+		Frontier frontier = new Frontier(2048);
+		assertThat(runWorkers(frontier), is(1023));
+		assertThat(frontier.dropped(), is(0L));
+	}
+
+	/**
+	 * With a tiny frontier, every worker ends up waiting to offer; they
+	 * should drop URLs rather than wait out the timeout.
+	 */
+	@Test
+	public void testWorkersFullFrontier() throws InterruptedException {
+		Frontier frontier = new Frontier(4);
+		long start = System.nanoTime();
+		int processed = runWorkers(frontier);
+		assertThat(System.nanoTime() - start < 5e9, is(true));
+		assertThat(frontier.dropped() > 0, is(true));
+		assertThat(processed < 1023, is(true));
+	}
+
+	/**
+	 * Runs four workers starting from "1", where URL n links to 2n and
+	 * 2n+1, up to 1023.
+	 *
+	 * @param frontier
+	 * @return the number of URLs processed
+	 * @throws InterruptedException
+	 */
+	private static int runWorkers(final Frontier frontier) throws InterruptedException {
+		final AtomicInteger processed = new AtomicInteger();
+		frontier.offer("1");
+		Thread[] workers = new Thread[4];
+		for (int t=0; t<workers.length; t++) {
+			workers[t] = new Thread(() -> {
+				try {
+					String url;
+					while ((url = frontier.take()) != null) {
+						processed.incrementAndGet();
+						int n = Integer.parseInt(url);
+						if (n < 512) {
+							frontier.offer(Integer.toString(2*n), 10, TimeUnit.SECONDS);
+							frontier.offer(Integer.toString(2*n+1), 10, TimeUnit.SECONDS);
+						}
+						frontier.done();
+					}
+				} catch (InterruptedException e) {
+					// test fails below
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker: workers) {
+			worker.join(20000);
+			assertThat(worker.isAlive(), is(false));
+		}
+		return processed.get();
+	}
+}
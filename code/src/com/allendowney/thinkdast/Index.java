@@ -1,22 +1,24 @@
 package com.allendowney.thinkdast;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jsoup.select.Elements;
 
 /**
  * Encapsulates a map from search term to set of TermCounter.
  *
+ * The map and the sets are concurrent, so several threads can index
+ * pages at the same time.
+ *
  * @author downey
  *
  */
 public class Index {
 
-    private Map<String, Set<TermCounter>> index = new HashMap<String, Set<TermCounter>>();
+    private Map<String, Set<TermCounter>> index = new ConcurrentHashMap<String, Set<TermCounter>>();
 
     /**
      * Adds a TermCounter to the set associated with `term`.
@@ -25,13 +27,11 @@ public class Index {
      * @param tc
      */
     public void add(String term, TermCounter tc) {
-        Set<TermCounter> set = get(term);
+        // if we're seeing a term for the first time, make a new Set;
+        // computeIfAbsent does that atomically, so two threads can't both
+        // make one
+        Set<TermCounter> set = index.computeIfAbsent(term, k -> ConcurrentHashMap.newKeySet());
 
-        // if we're seeing a term for the first time, make a new Set
-        if (set == null) {
-            set = new HashSet<TermCounter>();
-            index.put(term, set);
-        }
         // otherwise we can modify an existing Set
         set.add(tc);
     }
@@ -0,0 +1,138 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for IntArrayList.
+ *
+ */
+public class IntArrayListTest {
+
+	protected IntArrayList mylist;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		mylist = new IntArrayList();
+		mylist.add(1);
+		mylist.add(2);
+		mylist.add(3);
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#add(int)}.
+	 */
+	@Test
+	public void testAdd() {
+		for (int i = 4; i < 20; i++) {
+			mylist.add(i);
+		}
+		assertThat(mylist.size(), is(19));
+		assertThat(mylist.get(18), is(19));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#add(int, int)}.
+	 */
+	@Test
+	public void testAddIndex() {
+		mylist.add(1, 5);
+		assertThat(mylist.get(1), is(5));
+		assertThat(mylist.size(), is(4));
+
+		mylist.add(0, 6);
+		assertThat(mylist.get(0), is(6));
+
+		mylist.add(5, 7);
+		assertThat(mylist.get(5), is(7));
+
+		try {
+			mylist.add(7, 0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#addAll(int[])}.
+	 */
+	@Test
+	public void testAddAll() {
+		int[] more = new int[25];
+		for (int i = 0; i < more.length; i++) {
+			more[i] = i + 4;
+		}
+		mylist.addAll(more);
+		assertThat(mylist.size(), is(28));
+		assertThat(mylist.get(27), is(28));
+
+		mylist.addAll(more, 5, 2);
+		assertThat(mylist.size(), is(30));
+		assertThat(mylist.get(29), is(10));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#get(int, int[], int, int)}.
+	 */
+	@Test
+	public void testGetBulk() {
+		int[] dest = new int[4];
+		mylist.get(1, dest, 2, 2);
+		assertThat(dest[2], is(2));
+		assertThat(dest[3], is(3));
+
+		try {
+			mylist.get(2, dest, 0, 2);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#removeAt(int)}.
+	 */
+	@Test
+	public void testRemoveAt() {
+		assertThat(mylist.removeAt(1), is(2));
+		assertThat(mylist.size(), is(2));
+		assertThat(mylist.get(1), is(3));
+		assertThat(mylist.indexOf(2), is(-1));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#sort()}.
+	 */
+	@Test
+	public void testSort() {
+		mylist.addAll(new int[] {-1, 7, 0});
+		mylist.sort();
+		assertThat(Arrays.toString(mylist.toArray()), is("[-1, 0, 1, 2, 3, 7]"));
+	}
+
+	/**
+	 * Test method for {@link IntArrayList#asList()}.
+	 */
+	@Test
+	public void testAsList() {
+		List<Integer> view = mylist.asList();
+		assertThat(view.size(), is(3));
+		assertThat(view.contains(2), is(true));
+		assertThat(view, is(Arrays.asList(1, 2, 3)));
+
+		view.set(0, 10);
+		assertThat(mylist.get(0), is(10));
+
+		view.add(4);
+		mylist.add(5);
+		assertThat(view.size(), is(5));
+		assertThat(view.get(4), is(5));
+	}
+}
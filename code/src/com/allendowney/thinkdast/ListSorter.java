@@ -3,9 +3,14 @@ package com.allendowney.thinkdast;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 /**
  * Provides sorting algorithms.
@@ -40,14 +45,21 @@ public class ListSorter<T> {
 	/**
 	 * Sorts a list using a Comparator object.
 	 * 
+	 * Copies the elements into an array, sorts the array, and writes
+	 * them back.
+	 * 
 	 * @param list
 	 * @param comparator
 	 * @return
 	 */
 	public void mergeSortInPlace(List<T> list, Comparator<T> comparator) {
-		List<T> sorted = mergeSort(list, comparator);
-		list.clear();
-		list.addAll(sorted);
+		T[] array = toArray(list);
+		mergeSort(array, comparator);
+		ListIterator<T> iter = list.listIterator();
+		for (T element: array) {
+			iter.next();
+			iter.set(element);
+		}
 	}
 
 	/**
@@ -60,62 +72,328 @@ public class ListSorter<T> {
 	 * @return
 	 */
 	public List<T> mergeSort(List<T> list, Comparator<T> comparator) {
-		int size = list.size();
-		if (size <= 1) {
+		if (list.size() <= 1) {
 			return list;
 		}
-		// make two lists with half the elements each.
-		List<T> first = mergeSort(new LinkedList<T>(list.subList(0, size/2)), comparator);
-		List<T> second = mergeSort(new LinkedList<T>(list.subList(size/2, size)), comparator);
-		
-		return merge(first, second, comparator);
+		T[] array = toArray(list);
+		mergeSort(array, comparator);
+		return new ArrayList<T>(Arrays.asList(array));
 	}
 
 	/**
-	 * Merges two sorted lists into a single sorted list.
+	 * Sorts an array using a Comparator object.
+	 * 
+	 * The sort is stable.  It allocates one auxiliary array the same
+	 * size as `array`, and nothing else.
 	 * 
-	 * @param first
-	 * @param second
+	 * @param array
+	 * @param comparator
+	 */
+	public void mergeSort(T[] array, Comparator<T> comparator) {
+		T[] aux = array.clone();
+		mergeSort(aux, array, 0, array.length, comparator);
+	}
+
+	/**
+	 * Runs shorter than this are sorted by insertion sort.
+	 */
+	static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * Sorts the elements of `src` from `low` (inclusive) to `high`
+	 * (exclusive) into the same range of `dest`.
+	 * 
+	 * `src` and `dest` must hold the same elements in that range.  The
+	 * recursive calls swap the roles of the two arrays, so each level
+	 * merges from one into the other without copying back.
+	 * 
+	 * @param src
+	 * @param dest
+	 * @param low
+	 * @param high
+	 * @param comparator
+	 */
+	static <T> void mergeSort(T[] src, T[] dest, int low, int high, Comparator<T> comparator) {
+		if (high - low < INSERTION_SORT_THRESHOLD) {
+			insertionSort(dest, low, high, comparator);
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, comparator);
+		mergeSort(dest, src, mid, high, comparator);
+
+		// if the halves are already in order, there is nothing to merge
+		if (comparator.compare(src[mid-1], src[mid]) <= 0) {
+			System.arraycopy(src, low, dest, low, high - low);
+			return;
+		}
+		merge(src, low, mid, mid, high, dest, low, comparator);
+	}
+
+	/**
+	 * Merges the sorted runs src[low1:high1] and src[low2:high2] into
+	 * `dest`, starting at `destPos`.
+	 * 
+	 * When elements are equal, the one from the first run goes first,
+	 * which keeps the sort stable.
+	 * 
+	 * @param src
+	 * @param low1
+	 * @param high1
+	 * @param low2
+	 * @param high2
+	 * @param dest
+	 * @param destPos
+	 * @param comparator
+	 */
+	static <T> void merge(T[] src, int low1, int high1, int low2, int high2,
+			T[] dest, int destPos, Comparator<T> comparator) {
+		int i = low1;
+		int j = low2;
+		int k = destPos;
+		while (i < high1 && j < high2) {
+			if (comparator.compare(src[j], src[i]) < 0) {
+				dest[k++] = src[j++];
+			} else {
+				dest[k++] = src[i++];
+			}
+		}
+		System.arraycopy(src, i, dest, k, high1 - i);
+		System.arraycopy(src, j, dest, k + high1 - i, high2 - j);
+	}
+
+	/**
+	 * Sorts array[low:high] by insertion sort.
+	 * 
+	 * @param array
+	 * @param low
+	 * @param high
 	 * @param comparator
-	 * @return
 	 */
-	private List<T> merge(List<T> first, List<T> second, Comparator<T> comparator) {
-		// NOTE: using LinkedList is important because we need to 
-		// remove from the beginning in constant time
-		List<T> result = new LinkedList<T>();
-		int total = first.size() + second.size();
-		for (int i=0; i<total; i++) {
-			List<T> winner = pickWinner(first, second, comparator);
-			result.add(winner.remove(0));
+	static <T> void insertionSort(T[] array, int low, int high, Comparator<T> comparator) {
+		for (int i=low+1; i < high; i++) {
+			T elt_i = array[i];
+			int j = i;
+			while (j > low && comparator.compare(elt_i, array[j-1]) < 0) {
+				array[j] = array[j-1];
+				j--;
+			}
+			array[j] = elt_i;
 		}
-		return result;
 	}
 
 	/**
-	 * Returns the list with the smaller first element, according to `comparator`.
+	 * Copies the elements of `list` into a new array.
 	 * 
-	 * If either list is empty, `pickWinner` returns the other.
+	 * The array is really an Object[], so it must not escape as a T[].
 	 * 
-	 * @param first
-	 * @param second
+	 * @param list
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private T[] toArray(List<T> list) {
+		return (T[]) list.toArray();
+	}
+
+	/**
+	 * Below this many elements, parallelMergeSort sorts and merges
+	 * sequentially rather than splitting into more tasks.
+	 */
+	public static final int DEFAULT_PARALLEL_CUTOFF = 1 << 13;
+
+	/**
+	 * Sorts a list using a Comparator object, in parallel.
+	 * 
+	 * Returns a list that might be new.  The result is the same as
+	 * mergeSort, including the order of equal elements.
+	 * 
+	 * @param list
 	 * @param comparator
 	 * @return
 	 */
-	private List<T> pickWinner(List<T> first, List<T> second, Comparator<T> comparator) {
-		if (first.size() == 0) {
-			return second;
+	public List<T> parallelMergeSort(List<T> list, Comparator<T> comparator) {
+		return parallelMergeSort(list, comparator, DEFAULT_PARALLEL_CUTOFF);
+	}
+
+	/**
+	 * Sorts a list using a Comparator object, in parallel.
+	 * 
+	 * @param list
+	 * @param comparator
+	 * @param cutoff subproblems smaller than this are done sequentially
+	 * @return
+	 */
+	public List<T> parallelMergeSort(List<T> list, Comparator<T> comparator, int cutoff) {
+		if (list.size() <= 1) {
+			return list;
+		}
+		T[] array = toArray(list);
+		parallelMergeSort(array, comparator, cutoff);
+		return new ArrayList<T>(Arrays.asList(array));
+	}
+
+	/**
+	 * Sorts an array using a Comparator object, in parallel.
+	 * 
+	 * Runs in the common ForkJoinPool.  Both the recursive sorts and
+	 * the merges are split into tasks, so the last merge is not a
+	 * sequential bottleneck.
+	 * 
+	 * @param array
+	 * @param comparator
+	 * @param cutoff subproblems smaller than this are done sequentially
+	 */
+	public void parallelMergeSort(T[] array, Comparator<T> comparator, int cutoff) {
+		if (cutoff < 1) {
+			throw new IllegalArgumentException("cutoff must be positive: " + cutoff);
 		}
-		if (second.size() == 0) {
-			return first;
+		T[] aux = array.clone();
+		ForkJoinPool.commonPool().invoke(
+				new SortTask<T>(aux, array, 0, array.length, comparator, cutoff));
+	}
+
+	/**
+	 * Sorts src[low:high] into dest[low:high], like the sequential
+	 * mergeSort, but sorts the halves in parallel.
+	 */
+	private static class SortTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] src;
+		private final T[] dest;
+		private final int low;
+		private final int high;
+		private final Comparator<T> comparator;
+		private final int cutoff;
+
+		public SortTask(T[] src, T[] dest, int low, int high, Comparator<T> comparator, int cutoff) {
+			this.src = src;
+			this.dest = dest;
+			this.low = low;
+			this.high = high;
+			this.comparator = comparator;
+			this.cutoff = cutoff;
 		}
-		int res = comparator.compare(first.get(0), second.get(0));
-		if (res < 0) {
-			return first;
+
+		@Override
+		protected void compute() {
+			if (high - low <= cutoff) {
+				mergeSort(src, dest, low, high, comparator);
+				return;
+			}
+			int mid = (low + high) >>> 1;
+			invokeAll(new SortTask<T>(dest, src, low, mid, comparator, cutoff),
+					  new SortTask<T>(dest, src, mid, high, comparator, cutoff));
+
+			if (comparator.compare(src[mid-1], src[mid]) <= 0) {
+				System.arraycopy(src, low, dest, low, high - low);
+				return;
+			}
+			new MergeTask<T>(src, low, mid, mid, high, dest, low, comparator, cutoff).compute();
 		}
-		if (res > 0) {
-			return second;
+	}
+
+	/**
+	 * Merges src[low1:high1] and src[low2:high2] into `dest`, starting
+	 * at `destPos`.
+	 * 
+	 * Splits the longer run at its middle element, finds where that
+	 * element belongs in the other run by binary search, and merges the
+	 * two sides in parallel.  Ties go to the first run, as in merge().
+	 */
+	private static class MergeTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] src;
+		private final int low1;
+		private final int high1;
+		private final int low2;
+		private final int high2;
+		private final T[] dest;
+		private final int destPos;
+		private final Comparator<T> comparator;
+		private final int cutoff;
+
+		public MergeTask(T[] src, int low1, int high1, int low2, int high2,
+				T[] dest, int destPos, Comparator<T> comparator, int cutoff) {
+			this.src = src;
+			this.low1 = low1;
+			this.high1 = high1;
+			this.low2 = low2;
+			this.high2 = high2;
+			this.dest = dest;
+			this.destPos = destPos;
+			this.comparator = comparator;
+			this.cutoff = cutoff;
+		}
+
+		@Override
+		protected void compute() {
+			int n1 = high1 - low1;
+			int n2 = high2 - low2;
+			if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+				merge(src, low1, high1, low2, high2, dest, destPos, comparator);
+				return;
+			}
+			int split1, split2;
+			if (n1 >= n2) {
+				split1 = (low1 + high1) >>> 1;
+				// elements of the second run that are equal to the split go after it
+				split2 = lowerBound(src, low2, high2, src[split1], comparator);
+			} else {
+				split2 = (low2 + high2) >>> 1;
+				// elements of the first run that are equal to the split go before it
+				split1 = upperBound(src, low1, high1, src[split2], comparator);
+			}
+			// the split element goes straight to its final place, so both
+			// sides are strictly smaller than this task
+			int splitPos = destPos + (split1 - low1) + (split2 - low2);
+			MergeTask<T> left = new MergeTask<T>(src, low1, split1, low2, split2,
+					dest, destPos, comparator, cutoff);
+			MergeTask<T> right;
+			if (n1 >= n2) {
+				dest[splitPos] = src[split1];
+				right = new MergeTask<T>(src, split1+1, high1, split2, high2,
+						dest, splitPos+1, comparator, cutoff);
+			} else {
+				dest[splitPos] = src[split2];
+				right = new MergeTask<T>(src, split1, high1, split2+1, high2,
+						dest, splitPos+1, comparator, cutoff);
+			}
+			invokeAll(left, right);
+		}
+	}
+
+	/**
+	 * Returns the index of the first element in array[low:high] that is
+	 * not less than `key`.
+	 */
+	private static <T> int lowerBound(T[] array, int low, int high, T key, Comparator<T> comparator) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparator.compare(array[mid], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first element in array[low:high] that is
+	 * greater than `key`.
+	 */
+	private static <T> int upperBound(T[] array, int low, int high, T key, Comparator<T> comparator) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparator.compare(array[mid], key) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
 		}
-		return first;
+		return low;
 	}
 
 	/**
@@ -141,30 +419,442 @@ public class ListSorter<T> {
 	 * @param k
 	 * @param list
 	 * @param comparator
-	 * @return 
 	 * @return
 	 */
 	public List<T> topK(int k, List<T> list, Comparator<T> comparator) {
-		PriorityQueue<T> heap = new PriorityQueue<T>(list.size(), comparator);
-		for (T element: list) {
-			if (heap.size() < k) {
-				heap.offer(element);
+		return topK(k, list.iterator(), comparator);
+	}
+
+	/**
+	 * Returns the largest `k` elements from `iter` in ascending order.
+	 * 
+	 * Consumes the iterator one element at a time and keeps only the
+	 * current top `k` in a heap, so it takes O(n log k) time and O(k)
+	 * space no matter how many elements there are.
+	 * 
+	 * @param k
+	 * @param iter
+	 * @param comparator
+	 * @return
+	 */
+	public List<T> topK(int k, Iterator<? extends T> iter, Comparator<T> comparator) {
+		BoundedHeap<T> heap = new BoundedHeap<T>(k, comparator);
+		while (iter.hasNext()) {
+			heap.offer(iter.next());
+		}
+		return heap.toSortedList();
+	}
+
+	/**
+	 * Returns the largest `k` elements from `stream` in ascending order.
+	 * 
+	 * The stream is consumed sequentially; see parallelTopK.
+	 * 
+	 * @param k
+	 * @param stream
+	 * @param comparator
+	 * @return
+	 */
+	public List<T> topK(int k, Stream<? extends T> stream, Comparator<T> comparator) {
+		return topK(k, stream.iterator(), comparator);
+	}
+
+	/**
+	 * Returns the largest `k` elements in `list` in ascending order,
+	 * using all cores.
+	 * 
+	 * @param k
+	 * @param list
+	 * @param comparator
+	 * @return
+	 */
+	public List<T> parallelTopK(int k, List<T> list, Comparator<T> comparator) {
+		return parallelTopK(k, list.parallelStream(), comparator);
+	}
+
+	/**
+	 * Returns the largest `k` elements from `stream` in ascending order.
+	 * 
+	 * Each thread fills its own k-element heap from its part of the
+	 * stream; then the heaps are merged pairwise, which costs O(k log k)
+	 * per merge.
+	 * 
+	 * @param k
+	 * @param stream
+	 * @param comparator
+	 * @return
+	 */
+	public List<T> parallelTopK(int k, Stream<? extends T> stream, Comparator<T> comparator) {
+		BoundedHeap<T> heap = stream.parallel().collect(
+				() -> new BoundedHeap<T>(k, comparator),
+				BoundedHeap::offer,
+				BoundedHeap::offerAll);
+		return heap.toSortedList();
+	}
+
+	/**
+	 * A min-heap of at most `capacity` elements, stored in an array.
+	 * 
+	 * When it is full, offer() replaces the smallest element if the new
+	 * one is larger, so the heap always holds the largest elements seen
+	 * so far.
+	 */
+	private static class BoundedHeap<T> {
+		private final Object[] heap;
+		private int size = 0;
+		private final Comparator<T> comparator;
+
+		public BoundedHeap(int capacity, Comparator<T> comparator) {
+			if (capacity < 0) {
+				throw new IllegalArgumentException("k must not be negative: " + capacity);
+			}
+			this.heap = new Object[capacity];
+			this.comparator = comparator;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T get(int i) {
+			return (T) heap[i];
+		}
+
+		public void offer(T element) {
+			if (size < heap.length) {
+				siftUp(size, element);
+				size++;
+			} else if (size > 0 && comparator.compare(element, get(0)) > 0) {
+				siftDown(0, element);
+			}
+		}
+
+		public void offerAll(BoundedHeap<T> that) {
+			for (int i=0; i<that.size; i++) {
+				offer(that.get(i));
+			}
+		}
+
+		/**
+		 * Removes and returns the smallest element.
+		 */
+		private T poll() {
+			T min = get(0);
+			size--;
+			T last = get(size);
+			heap[size] = null;
+			if (size > 0) {
+				siftDown(0, last);
+			}
+			return min;
+		}
+
+		/**
+		 * Moves `element` up from the hole at `i` to where it belongs.
+		 */
+		private void siftUp(int i, T element) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				T p = get(parent);
+				if (comparator.compare(element, p) >= 0) {
+					break;
+				}
+				heap[i] = p;
+				i = parent;
+			}
+			heap[i] = element;
+		}
+
+		/**
+		 * Moves `element` down from the hole at `i` to where it belongs.
+		 */
+		private void siftDown(int i, T element) {
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				T c = get(child);
+				int right = child + 1;
+				if (right < size && comparator.compare(get(right), c) < 0) {
+					child = right;
+					c = get(child);
+				}
+				if (comparator.compare(element, c) <= 0) {
+					break;
+				}
+				heap[i] = c;
+				i = child;
+			}
+			heap[i] = element;
+		}
+
+		/**
+		 * Empties the heap into a list in ascending order.
+		 */
+		public List<T> toSortedList() {
+			List<T> res = new ArrayList<T>(size);
+			while (size > 0) {
+				res.add(poll());
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * Sorts an int array by LSD radix sort, one byte at a time.
+	 * 
+	 * Takes four passes over the data, each O(n), and one auxiliary
+	 * array.  A pass is skipped when every element has the same byte in
+	 * that position, so arrays of small values are sorted in fewer passes.
+	 * 
+	 * @param array
+	 */
+	public static void radixSort(int[] array) {
+		int n = array.length;
+		int[] src = array;
+		int[] dest = new int[n];
+		for (int shift=0; shift<32; shift+=8) {
+			// flipping the sign bit makes negative numbers sort first
+			int flip = shift == 24 ? 0x80 : 0;
+			int[] count = new int[257];
+			for (int i=0; i<n; i++) {
+				count[(((src[i] >>> shift) & 0xFF) ^ flip) + 1]++;
+			}
+			if (allInOneBucket(count, n)) {
 				continue;
 			}
-			int cmp = comparator.compare(element, heap.peek());
-			if (cmp > 0) {
-				heap.poll();
-				heap.offer(element);
+			for (int r=0; r<256; r++) {
+				count[r+1] += count[r];
 			}
+			for (int i=0; i<n; i++) {
+				dest[count[((src[i] >>> shift) & 0xFF) ^ flip]++] = src[i];
+			}
+			int[] temp = src;
+			src = dest;
+			dest = temp;
 		}
-		List<T> res = new ArrayList<T>();
-		while (!heap.isEmpty()) {
-			res.add(heap.poll());
+		if (src != array) {
+			System.arraycopy(src, 0, array, 0, n);
+		}
+	}
+
+	/**
+	 * Sorts a long array by LSD radix sort, one byte at a time.
+	 * 
+	 * Like radixSort(int[]), but with eight passes.
+	 * 
+	 * @param array
+	 */
+	public static void radixSort(long[] array) {
+		int n = array.length;
+		long[] src = array;
+		long[] dest = new long[n];
+		for (int shift=0; shift<64; shift+=8) {
+			int flip = shift == 56 ? 0x80 : 0;
+			int[] count = new int[257];
+			for (int i=0; i<n; i++) {
+				count[((int) ((src[i] >>> shift) & 0xFF) ^ flip) + 1]++;
+			}
+			if (allInOneBucket(count, n)) {
+				continue;
+			}
+			for (int r=0; r<256; r++) {
+				count[r+1] += count[r];
+			}
+			for (int i=0; i<n; i++) {
+				dest[count[(int) ((src[i] >>> shift) & 0xFF) ^ flip]++] = src[i];
+			}
+			long[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		if (src != array) {
+			System.arraycopy(src, 0, array, 0, n);
+		}
+	}
+
+	/**
+	 * Checks whether one bucket got all `n` elements.
+	 * 
+	 * @param count counts shifted up by one, as in radixSort
+	 * @param n
+	 * @return
+	 */
+	private static boolean allInOneBucket(int[] count, int n) {
+		for (int c: count) {
+			if (c == n) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sorts an int array whose values are all between `min` and `max`
+	 * (inclusive) by counting sort.
+	 * 
+	 * Takes O(n + max - min) time and space, so it is worthwhile when the
+	 * range is small compared to n, as it is for term counts.
+	 * 
+	 * @param array
+	 * @param min
+	 * @param max
+	 */
+	public static void countingSort(int[] array, int min, int max) {
+		int[] count = new int[rangeSize(min, max)];
+		for (int value: array) {
+			if (value < min || value > max) {
+				throw new IllegalArgumentException("value out of range: " + value);
+			}
+			count[value - min]++;
+		}
+		int i = 0;
+		for (int r=0; r<count.length; r++) {
+			for (int c=count[r]; c>0; c--) {
+				array[i++] = min + r;
+			}
+		}
+	}
+
+	/**
+	 * Sorts a list by an integer key between `min` and `max` (inclusive),
+	 * using counting sort.
+	 * 
+	 * The sort is stable, so elements with the same key stay in order.
+	 * 
+	 * @param list
+	 * @param key
+	 * @param min
+	 * @param max
+	 */
+	public void countingSort(List<T> list, ToIntFunction<? super T> key, int min, int max) {
+		T[] array = toArray(list);
+		int[] count = new int[rangeSize(min, max) + 1];
+		int[] keys = new int[array.length];
+		for (int i=0; i<array.length; i++) {
+			int k = key.applyAsInt(array[i]);
+			if (k < min || k > max) {
+				throw new IllegalArgumentException("key out of range: " + k);
+			}
+			keys[i] = k - min;
+			count[keys[i] + 1]++;
+		}
+		for (int r=1; r<count.length; r++) {
+			count[r] += count[r-1];
+		}
+		Object[] sorted = new Object[array.length];
+		for (int i=0; i<array.length; i++) {
+			sorted[count[keys[i]]++] = array[i];
+		}
+		ListIterator<T> iter = list.listIterator();
+		for (Object element: sorted) {
+			iter.next();
+			@SuppressWarnings("unchecked")
+			T t = (T) element;
+			iter.set(t);
+		}
+	}
+
+	/**
+	 * @param min
+	 * @param max
+	 * @return the number of values from min to max
+	 */
+	private static int rangeSize(int min, int max) {
+		long size = (long) max - min + 1;
+		if (size <= 0 || size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("bad range: " + min + " to " + max);
+		}
+		return (int) size;
+	}
+
+	/**
+	 * Sorts a list of Strings by MSD radix sort.
+	 * 
+	 * Distributes the strings into buckets by their first character,
+	 * then sorts each bucket by the next character, and so on.  The
+	 * result is the same as String.compareTo order.
+	 * 
+	 * @param list
+	 */
+	public static void radixSort(List<String> list) {
+		String[] array = list.toArray(new String[0]);
+		radixSort(array);
+		ListIterator<String> iter = list.listIterator();
+		for (String element: array) {
+			iter.next();
+			iter.set(element);
+		}
+	}
+
+	/**
+	 * Sorts an array of Strings by MSD radix sort.
+	 * 
+	 * @param array
+	 */
+	public static void radixSort(String[] array) {
+		String[] aux = new String[array.length];
+		msdSort(array, aux, 0, array.length, 0);
+	}
+
+	/**
+	 * Number of buckets for one character.  Bucket 0 is for strings that
+	 * end before this position, buckets 1 through 255 are for chars 0
+	 * to 254, and the last bucket is for all other chars.
+	 */
+	private static final int RADIX = 257;
+
+	/**
+	 * Maps the char at position `d` of `s` to its bucket.
+	 */
+	private static int bucket(String s, int d) {
+		if (d >= s.length()) {
+			return 0;
+		}
+		return Math.min(s.charAt(d), RADIX - 2) + 1;
+	}
+
+	/**
+	 * Sorts array[low:high], whose elements all have the same first `d`
+	 * chars, by the chars from `d` on.
+	 * 
+	 * @param array
+	 * @param aux
+	 * @param low
+	 * @param high
+	 * @param d
+	 */
+	private static void msdSort(String[] array, String[] aux, int low, int high, int d) {
+		if (high - low < INSERTION_SORT_THRESHOLD) {
+			insertionSort(array, low, high, String::compareTo);
+			return;
+		}
+		int[] count = new int[RADIX + 1];
+		for (int i=low; i<high; i++) {
+			count[bucket(array[i], d) + 1]++;
+		}
+		for (int r=0; r<RADIX; r++) {
+			count[r+1] += count[r];
+		}
+		for (int i=low; i<high; i++) {
+			aux[low + count[bucket(array[i], d)]++] = array[i];
+		}
+		System.arraycopy(aux, low, array, low, high - low);
+
+		// now count[r] is the end of bucket r; bucket 0 is already sorted
+		// because all of its strings are equal
+		for (int r=1; r<RADIX; r++) {
+			int start = low + count[r-1];
+			int end = low + count[r];
+			if (end - start <= 1) {
+				continue;
+			}
+			if (r == RADIX - 1) {
+				// chars beyond the radix are mixed in this bucket,
+				// so sort it by comparison
+				Arrays.sort(array, start, end);
+			} else {
+				msdSort(array, aux, start, end, d + 1);
+			}
 		}
-		return res;
 	}
 
-	
 	/**
 	 * @param args
 	 */
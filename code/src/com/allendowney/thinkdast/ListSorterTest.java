@@ -5,8 +5,10 @@ import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -79,6 +81,71 @@ public class ListSorterTest {
 		isSorted(sorted);
 	}
 
+	/**
+	 * Test method for {@link mergeSort(java.util.List, java.util.Comparator)}
+	 * with enough elements to use both insertion sort and merging.
+	 */
+	@Test
+	public void testMergeSortLarge() {
+		// compare by tens digit, so there are lots of ties and
+		// the result is only right if the sort is stable
+		Comparator<Integer> byTens = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer elt1, Integer elt2) {
+				return Integer.compare(elt1 / 10, elt2 / 10);
+			}
+		};
+		List<Integer> list = randomList(10000);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected, byTens);
+
+		assertThat(sorter.mergeSort(list, byTens), is(expected));
+
+		sorter.mergeSortInPlace(list, byTens);
+		assertThat(list, is(expected));
+
+		// already sorted input takes the shortcut past the merge
+		sorter.mergeSortInPlace(list, byTens);
+		assertThat(list, is(expected));
+	}
+
+	/**
+	 * Test method for {@link parallelMergeSort(java.util.List, java.util.Comparator, int)}.
+	 */
+	@Test
+	public void testParallelMergeSort() {
+		List<Integer> list = new ArrayList<Integer>(Arrays.asList(3, 5, 1, 4, 2));
+		isSorted(sorter.parallelMergeSort(list, comparator));
+
+		// a small cutoff makes lots of tasks, including parallel merges
+		Comparator<Integer> byTens = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer elt1, Integer elt2) {
+				return Integer.compare(elt1 / 10, elt2 / 10);
+			}
+		};
+		list = randomList(10000);
+		List<Integer> expected = sorter.mergeSort(list, byTens);
+		for (int cutoff: new int[] {1, 7, 64, 100000}) {
+			assertThat(sorter.parallelMergeSort(list, byTens, cutoff), is(expected));
+		}
+	}
+
+	/**
+	 * Makes a list of distinct integers in random order.
+	 *
+	 * @param n
+	 * @return
+	 */
+	private List<Integer> randomList(int n) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i=0; i<n; i++) {
+			list.add(i);
+		}
+		Collections.shuffle(list, new Random(17));
+		return list;
+	}
+
 	/**
 	 * Test method for {@link heapSort(java.util.List, java.util.Comparator)}.
 	 */
@@ -103,4 +170,103 @@ public class ListSorterTest {
 		assertThat(res.get(2), is(7));
 		assertThat(res.get(3), is(8));
 	}
+
+	/**
+	 * Test method for {@link topK(int, java.util.Iterator, java.util.Comparator)}
+	 * and {@link parallelTopK(int, java.util.List, java.util.Comparator)}.
+	 */
+	@Test
+	public void testTopKStreaming() {
+		List<Integer> list = randomList(10000);
+		List<Integer> expected = Arrays.asList(9990, 9991, 9992, 9993, 9994, 9995, 9996, 9997, 9998, 9999);
+
+		assertThat(sorter.topK(10, list.iterator(), comparator), is(expected));
+		assertThat(sorter.topK(10, list.stream(), comparator), is(expected));
+		assertThat(sorter.parallelTopK(10, list, comparator), is(expected));
+
+		// k larger than the input returns everything, sorted
+		List<Integer> res = sorter.topK(20, Arrays.asList(3, 1, 2).iterator(), comparator);
+		assertThat(res, is(Arrays.asList(1, 2, 3)));
+		assertThat(sorter.topK(0, list, comparator).isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#radixSort(int[])} and
+	 * {@link ListSorter#radixSort(long[])}.
+	 */
+	@Test
+	public void testRadixSortNumbers() {
+		Random random = new Random(17);
+		int[] ints = new int[10000];
+		long[] longs = new long[10000];
+		for (int i=0; i<ints.length; i++) {
+			ints[i] = random.nextInt();
+			longs[i] = random.nextLong();
+		}
+		ints[0] = Integer.MIN_VALUE;
+		ints[1] = Integer.MAX_VALUE;
+		longs[0] = Long.MIN_VALUE;
+		longs[1] = Long.MAX_VALUE;
+
+		int[] expectedInts = ints.clone();
+		Arrays.sort(expectedInts);
+		ListSorter.radixSort(ints);
+		assertThat(Arrays.equals(ints, expectedInts), is(true));
+
+		long[] expectedLongs = longs.clone();
+		Arrays.sort(expectedLongs);
+		ListSorter.radixSort(longs);
+		assertThat(Arrays.equals(longs, expectedLongs), is(true));
+
+		// small values skip the passes for the high bytes
+		int[] small = {3, 0, 200, 7, 7, 1};
+		ListSorter.radixSort(small);
+		assertThat(Arrays.equals(small, new int[] {0, 1, 3, 7, 7, 200}), is(true));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#countingSort(int[], int, int)} and
+	 * {@link ListSorter#countingSort(List, java.util.function.ToIntFunction, int, int)}.
+	 */
+	@Test
+	public void testCountingSort() {
+		int[] array = {3, -1, 5, 3, 0, -1};
+		ListSorter.countingSort(array, -1, 5);
+		assertThat(Arrays.equals(array, new int[] {-1, -1, 0, 3, 3, 5}), is(true));
+
+		try {
+			ListSorter.countingSort(new int[] {6}, 0, 5);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+
+		// sorting by tens digit keeps the order of ties
+		List<Integer> list = randomList(1000);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected, (a, b) -> Integer.compare(a / 10, b / 10));
+		sorter.countingSort(list, x -> x / 10, 0, 99);
+		assertThat(list, is(expected));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#radixSort(List)}.
+	 */
+	@Test
+	public void testRadixSortStrings() {
+		Random random = new Random(17);
+		List<String> list = new ArrayList<String>();
+		String alphabet = "abc\u00e9\u4e2dZ";
+		for (int i=0; i<5000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(8);
+			for (int j=0; j<length; j++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			list.add(sb.toString());
+		}
+		List<String> expected = new ArrayList<String>(list);
+		Collections.sort(expected);
+
+		ListSorter.radixSort(list);
+		assertThat(list, is(expected));
+	}
 }
@@ -0,0 +1,242 @@
+package com.allendowney.thinkdast;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for Wikipedia that serves the saved pages in
+ * src/resources.en.wikipedia.org.wiki over HTTP, so crawlers can be
+ * tested and profiled without the network.
+ *
+ * GET /wiki/Name returns the saved page called Name.  The server can
+ * wait a fixed time before each response, to act like a remote server.
+ * If `wrap` is true, a name that isn't saved gets one of the saved pages,
+ * chosen by the hash of the name, so a crawl never runs out of pages;
+ * otherwise it gets a 404.
+ *
+ * Responses have ETag and Last-Modified headers, and the server answers
+ * conditional requests (If-None-Match and If-Modified-Since) with 304 Not
+ * Modified, so it can stand in for Wikipedia when testing caches.
+ *
+ */
+public class LocalWiki implements Closeable {
+
+	public static final String DEFAULT_DIR = "src/resources.en.wikipedia.org.wiki";
+
+	/**
+	 * A saved page and its validators.
+	 */
+	private static class Page {
+		final byte[] body;
+		final String etag;
+		final long lastModified;    // seconds since the epoch
+
+		Page(byte[] body, long lastModifiedMillis) {
+			this.body = body;
+			this.etag = '"' + Integer.toHexString(Arrays.hashCode(body)) + '"';
+			this.lastModified = lastModifiedMillis / 1000;
+		}
+	}
+
+	private final Map<String, Page> pages = new ConcurrentHashMap<String, Page>();
+	private final List<String> names;
+	private final long latencyMillis;
+	private final boolean wrap;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+
+	/**
+	 * Loads the pages and starts the server on a free port.
+	 *
+	 * @param dir directory of saved pages
+	 * @param latencyMillis how long to wait before each response
+	 * @param wrap whether to serve unknown names
+	 * @throws IOException
+	 */
+	public LocalWiki(File dir, long latencyMillis, boolean wrap) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null || files.length == 0) {
+			throw new IOException("no pages in " + dir);
+		}
+		for (File file: files) {
+			pages.put(file.getName(), new Page(Files.readAllBytes(file.toPath()), file.lastModified()));
+		}
+		names = new ArrayList<String>(pages.keySet());
+		Collections.sort(names);
+		this.latencyMillis = latencyMillis;
+		this.wrap = wrap;
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/wiki/", this::handle);
+		// a thread per request, so waiting requests don't hold up the others
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "LocalWiki");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * @return the URL to put before /wiki/Name, like https://en.wikipedia.org
+	 */
+	public String baseUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @param name
+	 * @return the URL of the page with the given name
+	 */
+	public String url(String name) {
+		return baseUrl() + "/wiki/" + name;
+	}
+
+	/**
+	 * @return the number of requests served so far
+	 */
+	public int requests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return the number of requests answered with 304 Not Modified
+	 */
+	public int notModified() {
+		return notModified.get();
+	}
+
+	/**
+	 * Replaces the page with the given name, or adds it, as if it had
+	 * just been edited.
+	 *
+	 * @param name
+	 * @param body
+	 */
+	public void setPage(String name, byte[] body) {
+		pages.put(name, new Page(body, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Finds the page for a name, or null.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private Page page(String name) {
+		Page page = pages.get(name);
+		if (page == null && wrap) {
+			page = pages.get(names.get(Math.floorMod(name.hashCode(), names.size())));
+		}
+		return page;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			String path = exchange.getRequestURI().getRawPath();
+			Page page = page(path.substring("/wiki/".length()));
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+			if (page == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			exchange.getResponseHeaders().set("ETag", page.etag);
+			exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+					ZonedDateTime.ofInstant(Instant.ofEpochSecond(page.lastModified), ZoneOffset.UTC)));
+			if (isNotModified(exchange, page)) {
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+			exchange.sendResponseHeaders(200, page.body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(page.body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Checks the conditional headers of a request.  If-None-Match wins
+	 * when both are present.
+	 *
+	 * @param exchange
+	 * @param page
+	 * @return whether the client's copy is current
+	 */
+	private static boolean isNotModified(HttpExchange exchange, Page page) {
+		String etags = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (etags != null) {
+			for (String etag: etags.split(",")) {
+				if (etag.trim().equals(page.etag) || etag.trim().equals("*")) {
+					return true;
+				}
+			}
+			return false;
+		}
+		String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+		if (since != null) {
+			try {
+				long seconds = ZonedDateTime.parse(since, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+				return page.lastModified <= seconds;
+			} catch (DateTimeParseException e) {
+				// ignore a bad date, as HTTP says to
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Serves the pages until the process is killed.
+	 *
+	 * @param args optional directory and latency in milliseconds
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : DEFAULT_DIR);
+		long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		LocalWiki wiki = new LocalWiki(dir, latency, true);
+		System.out.println("Serving " + wiki.names.size() + " pages at " + wiki.url(""));
+	}
+}
@@ -0,0 +1,292 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of longs, stored in a long[] rather than boxed Longs.
+ *
+ * Grows the same way as MyArrayList: when the array is full, its length
+ * is doubled.  Use asList() where a List<Long> is required.
+ *
+ */
+public class LongArrayList {
+	// some VMs can't allocate arrays quite as long as Integer.MAX_VALUE
+	private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+	int size;                    // keeps track of the number of elements
+	private long[] array;        // stores the elements
+
+	/**
+	 *
+	 */
+	public LongArrayList() {
+		this(10);
+	}
+
+	/**
+	 * @param capacity initial length of the backing array
+	 */
+	public LongArrayList(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		array = new long[capacity];
+		size = 0;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		LongArrayList lal = new LongArrayList();
+		lal.addAll(new long[] {3, 1, 2});
+		System.out.println(Arrays.toString(lal.toArray()) + " size = " + lal.size);
+
+		lal.sort();
+		System.out.println(lal.asList() + " size = " + lal.size);
+	}
+
+	/**
+	 * Doubles the length of the array, or more if that's not enough, so it
+	 * can hold `minCapacity` elements.  Near the largest array size, grows
+	 * only as far as it can.
+	 *
+	 * @param minCapacity
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity < 0) {
+			// size + n overflowed
+			throw new OutOfMemoryError("list too large");
+		}
+		if (minCapacity <= array.length) {
+			return;
+		}
+		int doubled = (int) Math.min(MAX_LENGTH, 2L * array.length);
+		array = Arrays.copyOf(array, Math.max(minCapacity, doubled));
+	}
+
+	/**
+	 * Appends an element.
+	 *
+	 * @param element
+	 */
+	public void add(long element) {
+		if (size >= array.length) {
+			ensureCapacity(size + 1);
+		}
+		array[size] = element;
+		size++;
+	}
+
+	/**
+	 * Inserts an element at `index`, shifting the following elements right.
+	 *
+	 * @param index
+	 * @param element
+	 */
+	public void add(int index, long element) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureCapacity(size + 1);
+		System.arraycopy(array, index, array, index+1, size-index);
+		array[index] = element;
+		size++;
+	}
+
+	/**
+	 * Appends all elements of `elements`.
+	 *
+	 * @param elements
+	 */
+	public void addAll(long[] elements) {
+		addAll(elements, 0, elements.length);
+	}
+
+	/**
+	 * Appends `length` elements of `elements`, starting at `offset`.
+	 *
+	 * The array grows at most once, no matter how many elements are added.
+	 *
+	 * @param elements
+	 * @param offset
+	 * @param length
+	 */
+	public void addAll(long[] elements, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > elements.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureCapacity(size + length);
+		System.arraycopy(elements, offset, array, size, length);
+		size += length;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param target
+	 * @return
+	 */
+	public boolean contains(long target) {
+		return indexOf(target) != -1;
+	}
+
+	/**
+	 * @param index
+	 * @return
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return array[index];
+	}
+
+	/**
+	 * Copies `length` elements starting at `index` into `dest`, starting at `destPos`.
+	 *
+	 * @param index
+	 * @param dest
+	 * @param destPos
+	 * @param length
+	 */
+	public void get(int index, long[] dest, int destPos, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		System.arraycopy(array, index, dest, destPos, length);
+	}
+
+	/**
+	 * @param target
+	 * @return index of the first occurrence of `target`, or -1
+	 */
+	public int indexOf(long target) {
+		for (int i = 0; i < size; i++) {
+			if (array[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the element at `index`, shifting the following elements left.
+	 *
+	 * @param index
+	 * @return the removed element
+	 */
+	public long removeAt(int index) {
+		long oldValue = get(index);
+		System.arraycopy(array, index+1, array, index, size-index-1);
+		size--;
+		return oldValue;
+	}
+
+	/**
+	 * @param index
+	 * @param element
+	 * @return the element previously at `index`
+	 */
+	public long set(int index, long element) {
+		long oldValue = get(index);
+		array[index] = element;
+		return oldValue;
+	}
+
+	/**
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sorts the elements in ascending order.
+	 */
+	public void sort() {
+		Arrays.sort(array, 0, size);
+	}
+
+	/**
+	 * Sorts the elements from `fromIndex` (inclusive) to `toIndex` (exclusive).
+	 *
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	public void sort(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+		Arrays.sort(array, fromIndex, toIndex);
+	}
+
+	/**
+	 * @return a copy of the elements
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(array, size);
+	}
+
+	/**
+	 * Returns a List<Long> backed by this list.
+	 *
+	 * Changes to either are visible in the other.  Each get() on the view
+	 * boxes the element, so use the primitive methods in hot loops.
+	 *
+	 * @return
+	 */
+	public List<Long> asList() {
+		return new BoxedView();
+	}
+
+	private class BoxedView extends AbstractList<Long> implements RandomAccess {
+		@Override
+		public Long get(int index) {
+			return LongArrayList.this.get(index);
+		}
+
+		@Override
+		public Long set(int index, Long element) {
+			return LongArrayList.this.set(index, element);
+		}
+
+		@Override
+		public void add(int index, Long element) {
+			LongArrayList.this.add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public Long remove(int index) {
+			modCount++;
+			return LongArrayList.this.removeAt(index);
+		}
+
+		@Override
+		public void clear() {
+			LongArrayList.this.clear();
+			modCount++;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
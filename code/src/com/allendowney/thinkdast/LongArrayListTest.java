@@ -0,0 +1,68 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for LongArrayList.
+ *
+ */
+public class LongArrayListTest {
+
+	protected LongArrayList mylist;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		mylist = new LongArrayList();
+		mylist.add(1L << 40);
+		mylist.add(2);
+		mylist.add(3);
+	}
+
+	/**
+	 * Test method for {@link LongArrayList#add(long)}.
+	 */
+	@Test
+	public void testAdd() {
+		for (int i = 4; i < 20; i++) {
+			mylist.add(i);
+		}
+		assertThat(mylist.size(), is(19));
+		assertThat(mylist.get(0), is(1L << 40));
+		assertThat(mylist.get(18), is(19L));
+	}
+
+	/**
+	 * Test method for {@link LongArrayList#sort()}.
+	 */
+	@Test
+	public void testSort() {
+		mylist.addAll(new long[] {-1, Long.MAX_VALUE});
+		mylist.sort();
+		assertThat(mylist.get(0), is(-1L));
+		assertThat(mylist.get(3), is(1L << 40));
+		assertThat(mylist.get(4), is(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Test method for {@link LongArrayList#asList()}.
+	 */
+	@Test
+	public void testAsList() {
+		List<Long> view = mylist.asList();
+		assertThat(view, is(Arrays.asList(1L << 40, 2L, 3L)));
+
+		view.remove(0);
+		assertThat(mylist.size(), is(2));
+		assertThat(mylist.get(0), is(2L));
+	}
+}
@@ -2,9 +2,11 @@ package com.allendowney.thinkdast;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
  * @author downey
@@ -14,6 +16,7 @@ import java.util.ListIterator;
 public class MyArrayList<T> implements List<T> {
 	int size;                    // keeps track of the number of elements
 	private T[] array;           // stores the elements
+	private int modCount = 0;    // counts adds and removes, so iterators can fail fast
 
 	/**
 	 *
@@ -52,6 +55,7 @@ public class MyArrayList<T> implements List<T> {
 		}
 		array[size] = element;
 		size++;
+		modCount++;
 		return true;
 	}
 
@@ -90,6 +94,7 @@ public class MyArrayList<T> implements List<T> {
 		// note: this version does not actually null out the references
 		// in the array, so it might delay garbage collection.
 		size = 0;
+		modCount++;
 	}
 
 	@Override
@@ -148,10 +153,7 @@ public class MyArrayList<T> implements List<T> {
 
 	@Override
 	public Iterator<T> iterator() {
-		// make a copy of the array
-		T[] copy = Arrays.copyOf(array, size);
-		// make a list and return an iterator
-		return Arrays.asList(copy).iterator();
+		return new MyListIterator(0);
 	}
 
 	@Override
@@ -167,18 +169,110 @@ public class MyArrayList<T> implements List<T> {
 
 	@Override
 	public ListIterator<T> listIterator() {
-		// make a copy of the array
-		T[] copy = Arrays.copyOf(array, size);
-		// make a list and return an iterator
-		return Arrays.asList(copy).listIterator();
+		return new MyListIterator(0);
 	}
 
 	@Override
 	public ListIterator<T> listIterator(int index) {
-		// make a copy of the array
-		T[] copy = Arrays.copyOf(array, size);
-		// make a list and return an iterator
-		return Arrays.asList(copy).listIterator(index);
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new MyListIterator(index);
+	}
+
+	/**
+	 * Iterates through the array in place, without copying it.
+	 *
+	 * If the list is changed other than through this iterator, the next
+	 * call fails with ConcurrentModificationException.
+	 *
+	 */
+	private class MyListIterator implements ListIterator<T> {
+		private int cursor;                  // index of the element next() returns
+		private int lastReturned = -1;       // index of the last element returned, or -1
+		private int expectedModCount = modCount;
+
+		public MyListIterator(int index) {
+			cursor = index;
+		}
+
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+
+		@Override
+		public T next() {
+			checkForComodification();
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = cursor;
+			cursor++;
+			return array[lastReturned];
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+
+		@Override
+		public T previous() {
+			checkForComodification();
+			if (cursor <= 0) {
+				throw new NoSuchElementException();
+			}
+			cursor--;
+			lastReturned = cursor;
+			return array[lastReturned];
+		}
+
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			MyArrayList.this.remove(lastReturned);
+			cursor = lastReturned;
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(T element) {
+			if (lastReturned < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			MyArrayList.this.set(lastReturned, element);
+		}
+
+		@Override
+		public void add(T element) {
+			checkForComodification();
+			MyArrayList.this.add(cursor, element);
+			cursor++;
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
 	}
 
 	@Override
@@ -195,8 +289,10 @@ public class MyArrayList<T> implements List<T> {
 	public T remove(int index) {
 		// TODO: FILL THIS IN!
 		T oldValue = get(index);
-		System.arraycopy(array, index+1, array, index, size-index);
+		System.arraycopy(array, index+1, array, index, size-index-1);
 		size--;
+		array[size] = null;          // so the removed element can be collected
+		modCount++;
 		return oldValue;
 	}
 
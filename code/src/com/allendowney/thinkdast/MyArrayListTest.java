@@ -6,8 +6,10 @@ import static org.junit.Assert.fail;
 import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -177,6 +179,82 @@ public class MyArrayListTest {
 		assertThat(iter.hasNext(), equalTo(false));
 	}
 
+	/**
+	 * Test method for {@link MyArrayList#iterator()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		for (int i = 4; i < 12; i++) {
+			mylist.add(i);
+		}
+		Iterator<Integer> iter = mylist.iterator();
+		while (iter.hasNext()) {
+			if (iter.next() % 2 == 0) {
+				iter.remove();
+			}
+		}
+		assertThat(mylist.size(), is(6));
+		assertThat(mylist.get(0), is(1));
+		assertThat(mylist.get(5), is(11));
+
+		iter = mylist.iterator();
+		iter.next();
+		iter.remove();
+		try {
+			iter.remove();
+			fail();
+		} catch (IllegalStateException e) {} // good
+		assertThat(mylist.get(0), is(3));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#iterator()}.
+	 */
+	@Test
+	public void testIteratorFailFast() {
+		Iterator<Integer> iter = mylist.iterator();
+		iter.next();
+		mylist.add(4);
+		try {
+			iter.next();
+			fail();
+		} catch (ConcurrentModificationException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#listIterator(int)}.
+	 */
+	@Test
+	public void testListIterator() {
+		ListIterator<Integer> iter = mylist.listIterator(1);
+		assertThat(iter.nextIndex(), is(1));
+		assertThat(iter.next(), is(2));
+		iter.set(20);
+		iter.add(25);
+		assertThat(iter.next(), is(3));
+		assertThat(iter.hasNext(), equalTo(false));
+
+		assertThat(iter.previous(), is(3));
+		assertThat(iter.previous(), is(25));
+		iter.remove();
+		assertThat(iter.previous(), is(20));
+		assertThat(iter.previousIndex(), is(0));
+		assertThat(iter.previous(), is(1));
+		assertThat(iter.hasPrevious(), equalTo(false));
+		iter.add(0);
+
+		assertThat(mylist.size(), is(4));
+		assertThat(mylist.get(0), is(0));
+		assertThat(mylist.get(1), is(1));
+		assertThat(mylist.get(2), is(20));
+		assertThat(mylist.get(3), is(3));
+
+		try {
+			mylist.listIterator(5);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
 	/**
 	 * Test method for {@link MyArrayList#lastIndexOf(Object)}.
 	 */
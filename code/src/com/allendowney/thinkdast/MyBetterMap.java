@@ -6,11 +6,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Implementation of a Map using a collection of MyLinearMap, and
  * using `hashCode` to determine which map each key should go in.
  *
+ * The number of sub-maps is always a power of two, so the index of a
+ * sub-map is the low bits of the hash code, after a spreading function
+ * mixes the high bits into them.  Without mixing, keys whose hash codes
+ * differ only in the high bits would all land in the same sub-map.  The
+ * spreading function can be chosen when the map is made.
+ *
  * @author downey
  * @param <K>
  * @param <V>
@@ -21,15 +28,63 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 	// MyBetterMap uses a collection of MyLinearMap
 	protected List<MyLinearMap<K, V>> maps;
 
+	// mixes the bits of a hash code before we choose a sub-map
+	protected final IntUnaryOperator spreader;
+
+	// total number of entries in the sub-maps; every method that adds or
+	// removes entries keeps it up to date, so size() is constant time
+	protected int size = 0;
+
 
 	/**
 	 * Initialize the map with 2 sub-maps.
 	 *
 	 */
 	public MyBetterMap() {
+		this(MyBetterMap::mix);
+	}
+
+	/**
+	 * Initialize the map with 2 sub-maps and the given spreading function.
+	 *
+	 * @param spreader for example MyBetterMap::mix or MyBetterMap::fold
+	 */
+	public MyBetterMap(IntUnaryOperator spreader) {
+		this.spreader = spreader;
 		makeMaps(2);
 	}
 
+	/**
+	 * Mixes all 32 bits of `h` into each other, using the finalizer from
+	 * MurmurHash3.  Hash codes that differ in any bit, like consecutive
+	 * integers or strings that differ in one character, are spread all
+	 * over the sub-maps.
+	 *
+	 * This is the default spreading function.
+	 *
+	 * @param h
+	 * @return
+	 */
+	public static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * XORs the high half of `h` into the low half, which is cheaper than
+	 * mix, and is what java.util.HashMap does.
+	 *
+	 * @param h
+	 * @return
+	 */
+	public static int fold(int h) {
+		return h ^ (h >>> 16);
+	}
+
 	/**
 	 * Makes a collection of `k` MyLinearMap
 	 *
@@ -38,17 +93,29 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 	protected void makeMaps(int k) {
 		maps = new ArrayList<MyLinearMap<K, V>>(k);
 		for (int i=0; i<k; i++) {
-			maps.add(new MyLinearMap<K, V>());
+			maps.add(makeMap());
 
 		}
 	}
 
+	/**
+	 * Makes one sub-map.  Sub-maps switch to a tree when they have many
+	 * entries with Comparable keys, which bounds the cost of a lookup
+	 * when many keys have the same hash code.
+	 *
+	 * @return
+	 */
+	protected MyLinearMap<K, V> makeMap() {
+		return new MyLinearMap<K, V>(true);
+	}
+
 	@Override
 	public void clear() {
 		// clear the sub-maps
 		for (int i=0; i<maps.size(); i++) {
 			maps.get(i).clear();
 		}
+		size = 0;
 	}
 
 	/**
@@ -58,16 +125,93 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 	 * @return
 	 */
 	protected MyLinearMap<K, V> chooseMap(Object key) {
-		int index = key==null ? 0 : Math.abs(key.hashCode()) % maps.size();
-		return maps.get(index);
+		return chooseMapByHash(MyLinearMap.hash(key));
+	}
+
+	/**
+	 * Finds the map that would/should contain a key with the given hash code.
+	 *
+	 * @param hash
+	 * @return
+	 */
+	protected MyLinearMap<K, V> chooseMapByHash(int hash) {
+		return maps.get(indexForHash(hash, maps.size()));
+	}
+
+	/**
+	 * Uses the hashCode to choose one of `k` sub-maps for the given key.
+	 *
+	 * @param key
+	 * @param k
+	 * @return
+	 */
+	protected int indexFor(Object key, int k) {
+		return indexForHash(MyLinearMap.hash(key), k);
+	}
+
+	/**
+	 * Chooses one of `k` sub-maps for a key with the given hash code.
+	 *
+	 * Masking works for negative hash codes, including
+	 * Integer.MIN_VALUE, which Math.abs leaves negative.
+	 *
+	 * @param hash
+	 * @param k the number of sub-maps, a power of two
+	 * @return
+	 */
+	protected int indexForHash(int hash, int k) {
+		return spreader.applyAsInt(hash) & (k - 1);
+	}
+
+	/**
+	 * Returns the sub-maps that hold entries.
+	 *
+	 * @return
+	 */
+	protected List<MyLinearMap<K, V>> liveMaps() {
+		return maps;
+	}
+
+	/**
+	 * Counts the sub-maps by how many entries they hold.
+	 *
+	 * Element i of the result is the number of sub-maps with i entries,
+	 * so the length of the result is one more than the longest chain.
+	 * With a good hash function most sub-maps hold 0, 1 or 2 entries; a
+	 * long tail means many keys have the same hash code, or hash codes
+	 * that differ only in bits the spreading function discards.
+	 *
+	 * @return
+	 */
+	public int[] bucketHistogram() {
+		return bucketHistogram(liveMaps());
+	}
+
+	/**
+	 * Counts the given sub-maps by how many entries they hold.
+	 *
+	 * @param maps
+	 * @return
+	 */
+	static <K, V> int[] bucketHistogram(Collection<MyLinearMap<K, V>> maps) {
+		int longest = 0;
+		for (MyLinearMap<K, V> map: maps) {
+			longest = Math.max(longest, map.size());
+		}
+		int[] counts = new int[longest + 1];
+		for (MyLinearMap<K, V> map: maps) {
+			counts[map.size()]++;
+		}
+		return counts;
 	}
 
 	@Override
 	public boolean containsKey(Object target) {
 		// to find a key, we only have to search one map
 		// TODO: FILL THIS IN!
-		MyLinearMap<K,V> map = chooseMap(target);
-		return map.containsKey(target);
+		int hash = MyLinearMap.hash(target);
+		MyLinearMap<K,V> map = chooseMapByHash(hash);
+		return map.containsKeyHashed(target, hash);
 	}
 
 	@Override
@@ -89,8 +233,9 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V get(Object key) {
-		MyLinearMap<K, V> map = chooseMap(key);
-		return map.get(key);
+		int hash = MyLinearMap.hash(key);
+		MyLinearMap<K, V> map = chooseMapByHash(hash);
+		return map.getHashed(key, hash);
 	}
 
 	@Override
@@ -110,8 +255,12 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V put(K key, V value) {
-		MyLinearMap<K, V> map = chooseMap(key);
-		return map.put(key, value);
+		int hash = MyLinearMap.hash(key);
+		MyLinearMap<K, V> map = chooseMapByHash(hash);
+		int before = map.size();
+		V oldValue = map.putHashed(key, value, hash);
+		size += map.size() - before;
+		return oldValue;
 	}
 
 	@Override
@@ -123,18 +272,17 @@ public class MyBetterMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V remove(Object key) {
-		MyLinearMap<K, V> map = chooseMap(key);
-		return map.remove(key);
+		int hash = MyLinearMap.hash(key);
+		MyLinearMap<K, V> map = chooseMapByHash(hash);
+		int before = map.size();
+		V oldValue = map.removeHashed(key, hash);
+		size += map.size() - before;
+		return oldValue;
 	}
 
 	@Override
 	public int size() {
-		// add up the sizes of the sub-maps
-		int total = 0;
-		for (MyLinearMap<K, V> map: maps) {
-			total += map.size();
-		}
-		return total;
+		return size;
 	}
 
 	@Override
@@ -0,0 +1,421 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe Map made of independent stripes, each of which is a
+ * small MyBetterMap with its own lock.
+ *
+ * The hash code of a key chooses a stripe, and the other bits of the
+ * hash choose a sub-map within the stripe, the same way MyBetterMap
+ * chooses a sub-map.  Threads that use different stripes don't contend,
+ * and readers of the same stripe share its read lock.
+ *
+ * Each stripe resizes by itself, under its own write lock, when it has
+ * more than FACTOR entries per sub-map, so a resize only blocks the
+ * threads that use that stripe.
+ *
+ * The total size is kept in a LongAdder, so size() doesn't take any
+ * locks.  keySet(), values() and entrySet() are snapshots, copied one
+ * stripe at a time; they don't reflect later changes.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class MyConcurrentMap<K, V> implements ConcurrentMap<K, V> {
+
+	// average number of entries per sub-map before a stripe resizes
+	protected static final double FACTOR = 1.0;
+
+	public static final int DEFAULT_STRIPES = 16;
+
+	private final Stripe<K, V>[] stripes;
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * Makes a map with DEFAULT_STRIPES stripes.
+	 */
+	public MyConcurrentMap() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Makes a map with at least `concurrency` stripes.
+	 *
+	 * @param concurrency rounded up to a power of two
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public MyConcurrentMap(int concurrency) {
+		if (concurrency < 1 || concurrency > (1 << 16)) {
+			throw new IllegalArgumentException("concurrency out of range: " + concurrency);
+		}
+		int bits = 32 - Integer.numberOfLeadingZeros(concurrency - 1);
+		stripes = new Stripe[1 << bits];
+		for (int i=0; i<stripes.length; i++) {
+			stripes[i] = new Stripe<K, V>(bits);
+		}
+	}
+
+	/**
+	 * One stripe: a MyBetterMap with a lock.  Its size is guarded by the lock.
+	 *
+	 * The low `shift` bits of the mixed hash choose the stripe, so
+	 * indexForHash uses the bits above them to choose a sub-map.
+	 */
+	private static class Stripe<K, V> extends MyBetterMap<K, V> {
+		final StampedLock lock = new StampedLock();
+		final int shift;
+
+		Stripe(int shift) {
+			this.shift = shift;
+		}
+
+		@Override
+		protected int indexForHash(int hash, int k) {
+			// k is always a power of two
+			return (spreader.applyAsInt(hash) >>> shift) & (k - 1);
+		}
+
+		/**
+		 * Doubles the number of sub-maps and moves the entries.
+		 *
+		 * Caller must hold the write lock.
+		 */
+		void resize() {
+			List<MyLinearMap<K, V>> oldMaps = maps;
+			makeMaps(oldMaps.size() * 2);
+			for (MyLinearMap<K, V> map: oldMaps) {
+				for (MyLinearMap<K, V>.Entry entry: map.getHashedEntries()) {
+					int hash = entry.getHash();
+					chooseMapByHash(hash).addNew(entry.getKey(), entry.getValue(), hash);
+				}
+			}
+		}
+
+		/**
+		 * Updates the size after an insert and resizes if needed.
+		 *
+		 * Caller must hold the write lock.
+		 */
+		void added() {
+			size++;
+			if (size > maps.size() * FACTOR) {
+				resize();
+			}
+		}
+	}
+
+	/**
+	 * Chooses a stripe using the low bits of the mixed hash code, the
+	 * same mixing the stripes use to choose a sub-map.
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private Stripe<K, V> stripeFor(int hash) {
+		return stripes[MyBetterMap.mix(hash) & (stripes.length - 1)];
+	}
+
+	@Override
+	public V get(Object key) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.readLock();
+		try {
+			return stripe.chooseMapByHash(hash).getHashed(key, hash);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.readLock();
+		try {
+			return stripe.chooseMapByHash(hash).containsKeyHashed(key, hash);
+		} finally {
+			stripe.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		// have to search every stripe, one at a time
+		for (Stripe<K, V> stripe: stripes) {
+			long stamp = stripe.lock.readLock();
+			try {
+				if (stripe.containsValue(value)) {
+					return true;
+				}
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			int before = map.size();
+			V oldValue = map.putHashed(key, value, hash);
+			if (map.size() > before) {
+				stripe.added();
+				size.increment();
+			}
+			return oldValue;
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			if (map.containsKeyHashed(key, hash)) {
+				return map.getHashed(key, hash);
+			}
+			map.putHashed(key, value, hash);
+			stripe.added();
+			size.increment();
+			return null;
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		for (Map.Entry<? extends K, ? extends V> entry: map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			int before = map.size();
+			V oldValue = map.removeHashed(key, hash);
+			if (map.size() < before) {
+				stripe.size--;
+				size.decrement();
+			}
+			return oldValue;
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			if (!map.containsKeyHashed(key, hash) || !Objects.equals(map.getHashed(key, hash), value)) {
+				return false;
+			}
+			map.removeHashed(key, hash);
+			stripe.size--;
+			size.decrement();
+			return true;
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			if (!map.containsKeyHashed(key, hash) || !Objects.equals(map.getHashed(key, hash), oldValue)) {
+				return false;
+			}
+			map.putHashed(key, newValue, hash);
+			return true;
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		int hash = MyLinearMap.hash(key);
+		Stripe<K, V> stripe = stripeFor(hash);
+		long stamp = stripe.lock.writeLock();
+		try {
+			MyLinearMap<K, V> map = stripe.chooseMapByHash(hash);
+			if (!map.containsKeyHashed(key, hash)) {
+				return null;
+			}
+			return map.putHashed(key, value, hash);
+		} finally {
+			stripe.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Stripe<K, V> stripe: stripes) {
+			long stamp = stripe.lock.writeLock();
+			try {
+				size.add(-stripe.size());
+				stripe.clear();
+			} finally {
+				stripe.lock.unlockWrite(stamp);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		long total = size.sum();
+		return total > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) total;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size.sum() == 0;
+	}
+
+	/**
+	 * Returns a snapshot of the keys.
+	 */
+	@Override
+	public Set<K> keySet() {
+		Set<K> set = new HashSet<K>();
+		for (Stripe<K, V> stripe: stripes) {
+			long stamp = stripe.lock.readLock();
+			try {
+				for (MyLinearMap<K, V> map: stripe.maps) {
+					set.addAll(map.keySet());
+				}
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Returns a snapshot of the values.
+	 */
+	@Override
+	public Collection<V> values() {
+		List<V> list = new ArrayList<V>();
+		for (Stripe<K, V> stripe: stripes) {
+			long stamp = stripe.lock.readLock();
+			try {
+				for (MyLinearMap<K, V> map: stripe.maps) {
+					list.addAll(map.values());
+				}
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a snapshot of the entries.
+	 *
+	 * Setting the value of one of these entries does not change the map.
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> set = new HashSet<Map.Entry<K, V>>();
+		for (Stripe<K, V> stripe: stripes) {
+			long stamp = stripe.lock.readLock();
+			try {
+				for (MyLinearMap<K, V> map: stripe.maps) {
+					for (Map.Entry<K, V> entry: map.getEntries()) {
+						set.add(new AbstractMap.SimpleEntry<K, V>(entry.getKey(), entry.getValue()));
+					}
+				}
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Counts the sub-maps of all stripes by how many entries they hold.
+	 *
+	 * See MyBetterMap.bucketHistogram.  Each stripe is counted under its
+	 * read lock, one at a time, so the result is not a snapshot of the
+	 * whole map.
+	 *
+	 * @return
+	 */
+	public int[] bucketHistogram() {
+		int[] total = new int[1];
+		for (Stripe<K, V> stripe: stripes) {
+			int[] counts;
+			long stamp = stripe.lock.readLock();
+			try {
+				counts = stripe.bucketHistogram();
+			} finally {
+				stripe.lock.unlockRead(stamp);
+			}
+			if (counts.length > total.length) {
+				total = Arrays.copyOf(total, counts.length);
+			}
+			for (int i=0; i<counts.length; i++) {
+				total[i] += counts[i];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of stripes
+	 */
+	public int stripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Map<String, Integer> map = new MyConcurrentMap<String, Integer>();
+		map.put("Word1", 1);
+		map.put("Word2", 2);
+		Integer value = map.get("Word1");
+		System.out.println(value);
+
+		for (String key: map.keySet()) {
+			System.out.println(key + ", " + map.get(key));
+		}
+	}
+}
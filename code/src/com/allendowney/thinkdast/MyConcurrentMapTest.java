@@ -0,0 +1,104 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for MyConcurrentMap.
+ *
+ */
+public class MyConcurrentMapTest extends MyLinearMapTest {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyConcurrentMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put(null, 0);
+	}
+
+	/**
+	 * Test method for {@link MyConcurrentMap#putIfAbsent(Object, Object)},
+	 * {@link MyConcurrentMap#replace(Object, Object, Object)} and
+	 * {@link MyConcurrentMap#remove(Object, Object)}.
+	 */
+	@Test
+	public void testAtomicOperations() {
+		ConcurrentMap<String, Integer> cmap = (ConcurrentMap<String, Integer>) map;
+		assertThat(cmap.putIfAbsent("One", 11), is(1));
+		assertThat(cmap.putIfAbsent("Four", 4), nullValue());
+		assertThat(cmap.size(), is(5));
+
+		assertThat(cmap.replace("Four", 5, 44), is(false));
+		assertThat(cmap.replace("Four", 4, 44), is(true));
+		assertThat(cmap.get("Four"), is(44));
+		assertThat(cmap.replace("Five", 5), nullValue());
+		assertThat(cmap.containsKey("Five"), is(false));
+
+		assertThat(cmap.remove("Four", 4), is(false));
+		assertThat(cmap.remove("Four", 44), is(true));
+		assertThat(cmap.size(), is(4));
+	}
+
+	/**
+	 * Puts from several threads at once, which makes the stripes resize
+	 * while other threads are using the map.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrentPuts() throws InterruptedException {
+		final MyConcurrentMap<String, Integer> cmap = new MyConcurrentMap<String, Integer>(4);
+		final int threads = 8;
+		final int perThread = 5000;
+
+		runThreads(threads, t -> {
+			for (int i=0; i<perThread; i++) {
+				cmap.put(t + ":" + i, i);
+				// and count some shared keys
+				cmap.merge("count" + (i % 10), 1, Integer::sum);
+			}
+		});
+
+		assertThat(cmap.size(), is(threads * perThread + 10));
+		for (int t=0; t<threads; t++) {
+			for (int i=0; i<perThread; i++) {
+				assertThat(cmap.get(t + ":" + i), is(i));
+			}
+		}
+		int total = 0;
+		for (int i=0; i<10; i++) {
+			total += cmap.get("count" + i);
+		}
+		assertThat(total, is(threads * perThread));
+	}
+
+	/**
+	 * Runs `task` in `n` threads, passing each its thread number, and
+	 * waits for them all.
+	 */
+	private static void runThreads(int n, java.util.function.IntConsumer task)
+			throws InterruptedException {
+		List<Thread> list = new ArrayList<Thread>();
+		for (int t=0; t<n; t++) {
+			final int id = t;
+			Thread thread = new Thread(() -> task.accept(id));
+			list.add(thread);
+			thread.start();
+		}
+		for (Thread thread: list) {
+			thread.join();
+		}
+	}
+}
@@ -0,0 +1,623 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A sorted, thread-safe Map implemented as a lock-free skip list.
+ *
+ * The nodes are linked in key order at level 0, and each node is also
+ * linked at a random number of levels above that, so a search can skip
+ * ahead and takes O(log n) steps on average.  No thread ever holds a
+ * lock; every change is a compare-and-set, and a thread that finds a
+ * half-finished change finishes it rather than waiting.
+ *
+ * A node is removed in two steps: first its value is replaced with
+ * DELETED, which is the moment it leaves the map; then its links are
+ * marked and it is unlinked, by the removing thread or by any other
+ * thread that runs into it.
+ *
+ * Keys and values may not be null.  Iterators are weakly consistent:
+ * they never throw ConcurrentModificationException, and they see some
+ * but not necessarily all of the changes made while they run.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class MyConcurrentSkipListMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private static final int MAX_LEVEL = 32;
+
+	// marks a value that has been removed
+	private static final Object DELETED = new Object();
+
+	private static class Node<K> {
+		final K key;
+		final AtomicReference<Object> value;
+		final AtomicMarkableReference<Node<K>>[] next;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Node(K key, Object value, int levels) {
+			this.key = key;
+			this.value = new AtomicReference<Object>(value);
+			this.next = new AtomicMarkableReference[levels];
+			for (int i=0; i<levels; i++) {
+				next[i] = new AtomicMarkableReference<Node<K>>(null, false);
+			}
+		}
+
+		int levels() {
+			return next.length;
+		}
+	}
+
+	// sentinel before the first node, linked at every level
+	private final Node<K> head = new Node<K>(null, null, MAX_LEVEL);
+	private final Comparator<? super K> comparator;
+	private final LongAdder size = new LongAdder();
+
+	// highest level any node has used; searches start here instead of at
+	// MAX_LEVEL.  It only grows, since it is raised with a max, and doPut
+	// raises it before searching, so a search for a new node always
+	// covers every level the node will be linked at.
+	private final AtomicInteger levelHint = new AtomicInteger(1);
+
+	/**
+	 * Makes a map that uses the natural ordering of the keys.
+	 */
+	public MyConcurrentSkipListMap() {
+		this(null);
+	}
+
+	/**
+	 * @param comparator orders the keys, or null for natural ordering
+	 */
+	public MyConcurrentSkipListMap(Comparator<? super K> comparator) {
+		this.comparator = comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(Object k1, K k2) {
+		if (comparator != null) {
+			return comparator.compare((K) k1, k2);
+		}
+		return ((Comparable<? super K>) k1).compareTo(k2);
+	}
+
+	/**
+	 * Chooses the number of levels for a new node: 1 with probability
+	 * 1/2, 2 with probability 1/4, and so on.
+	 */
+	private static int randomLevels() {
+		int r = ThreadLocalRandom.current().nextInt();
+		return Math.min(MAX_LEVEL, Integer.numberOfTrailingZeros(~r) + 1);
+	}
+
+	/**
+	 * Finds, at each level, the last node with a key less than `key`
+	 * (preds) and the node after it (succs), unlinking any marked nodes
+	 * it passes.
+	 *
+	 * @param key
+	 * @param preds
+	 * @param succs
+	 * @return true if succs[0] has the given key
+	 */
+	private boolean find(Object key, Node<K>[] preds, Node<K>[] succs) {
+		boolean[] marked = {false};
+		retry:
+		while (true) {
+			Node<K> pred = head;
+			int top = levelHint.get();
+			for (int level=MAX_LEVEL-1; level>=top; level--) {
+				preds[level] = head;
+				succs[level] = head.next[level].getReference();
+			}
+			for (int level=top-1; level>=0; level--) {
+				Node<K> curr = pred.next[level].getReference();
+				while (curr != null) {
+					Node<K> succ = curr.next[level].get(marked);
+					while (marked[0]) {
+						// curr is being removed; unlink it at this level
+						if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+							continue retry;
+						}
+						curr = succ;
+						if (curr == null) {
+							break;
+						}
+						succ = curr.next[level].get(marked);
+					}
+					if (curr != null && compare(key, curr.key) > 0) {
+						pred = curr;
+						curr = succ;
+					} else {
+						break;
+					}
+				}
+				preds[level] = pred;
+				succs[level] = curr;
+			}
+			return succs[0] != null && compare(key, succs[0].key) == 0;
+		}
+	}
+
+	/**
+	 * Marks every link of `node`, top level first, so other threads
+	 * know to unlink it.
+	 *
+	 * It's safe for several threads to do this at once.
+	 */
+	private static <K> void markAll(Node<K> node) {
+		boolean[] marked = {false};
+		for (int level=node.levels()-1; level>=0; level--) {
+			Node<K> succ = node.next[level].get(marked);
+			while (!marked[0]) {
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+	}
+
+	/**
+	 * Returns the node with the given key, if it was in the map when
+	 * we looked, or null.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private Node<K> findNode(Object key) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		// fast path: search without changing anything
+		Node<K> pred = head;
+		boolean sawRemoved = false;
+		for (int level=levelHint.get()-1; level>=0; level--) {
+			Node<K> curr = pred.next[level].getReference();
+			while (curr != null) {
+				int cmp = compare(key, curr.key);
+				if (cmp > 0) {
+					pred = curr;
+					curr = curr.next[level].getReference();
+				} else {
+					if (cmp == 0) {
+						if (curr.value.get() != DELETED) {
+							return curr;
+						}
+						sawRemoved = true;
+					}
+					break;
+				}
+			}
+		}
+		// slow path: we found a removed node, and a newer node with the
+		// same key might follow it
+		return sawRemoved ? findLive(key) : null;
+	}
+
+	/**
+	 * Like findNode, but unlinks removed nodes until it finds a live
+	 * node with the key or none.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Node<K> findLive(Object key) {
+		Node<K>[] preds = new Node[MAX_LEVEL];
+		Node<K>[] succs = new Node[MAX_LEVEL];
+		while (find(key, preds, succs)) {
+			Node<K> node = succs[0];
+			if (node.value.get() != DELETED) {
+				return node;
+			}
+			markAll(node);
+		}
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		Node<K> node = findNode(key);
+		return node == null ? null : valueOf(node.value.get());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V valueOf(Object value) {
+		return value == DELETED ? null : (V) value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findNode(key) != null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		return doPut(key, value, false);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		return doPut(key, value, true);
+	}
+
+	/**
+	 * Adds or replaces the value for `key`.
+	 *
+	 * @param key
+	 * @param value
+	 * @param onlyIfAbsent whether to leave an existing value alone
+	 * @return the old value, or null
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private V doPut(K key, V value, boolean onlyIfAbsent) {
+		if (key == null || value == null) {
+			throw new NullPointerException();
+		}
+		Node<K>[] preds = new Node[MAX_LEVEL];
+		Node<K>[] succs = new Node[MAX_LEVEL];
+		int levels = randomLevels();
+		levelHint.accumulateAndGet(levels, Math::max);
+		while (true) {
+			if (find(key, preds, succs)) {
+				Node<K> node = succs[0];
+				Object old = node.value.get();
+				if (old == DELETED) {
+					// help finish the removal, then try again
+					markAll(node);
+					continue;
+				}
+				if (onlyIfAbsent || node.value.compareAndSet(old, value)) {
+					return (V) old;
+				}
+				continue;
+			}
+
+			// link a new node at level 0; this is when it joins the map
+			Node<K> node = new Node<K>(key, value, levels);
+			for (int level=0; level<levels; level++) {
+				node.next[level].set(succs[level], false);
+			}
+			if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				continue;
+			}
+			size.increment();
+
+			// then link it at the higher levels
+			boolean[] marked = {false};
+			for (int level=1; level<levels; level++) {
+				while (true) {
+					Node<K> link = node.next[level].get(marked);
+					if (marked[0]) {
+						// it's already being removed; don't bother
+						return null;
+					}
+					Node<K> succ = succs[level];
+					if (link != succ && !node.next[level].compareAndSet(link, succ, false, false)) {
+						continue;
+					}
+					if (preds[level].next[level].compareAndSet(succ, node, false, false)) {
+						break;
+					}
+					find(key, preds, succs);
+				}
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		return doRemove(key, null);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		if (value == null) {
+			return false;
+		}
+		return doRemove(key, value) != null;
+	}
+
+	/**
+	 * Removes `key`, if its value equals `expected` (or always, if
+	 * `expected` is null).
+	 *
+	 * @return the removed value, or null
+	 */
+	private V doRemove(Object key, Object expected) {
+		while (true) {
+			Node<K> node = findNode(key);
+			if (node == null) {
+				return null;
+			}
+			Object old = node.value.get();
+			if (old == DELETED) {
+				continue;
+			}
+			if (expected != null && !expected.equals(old)) {
+				return null;
+			}
+			if (node.value.compareAndSet(old, DELETED)) {
+				size.decrement();
+				markAll(node);
+				// unlink it
+				findLive(key);
+				return valueOf(old);
+			}
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (oldValue == null || newValue == null) {
+			throw new NullPointerException();
+		}
+		while (true) {
+			Node<K> node = findNode(key);
+			if (node == null) {
+				return false;
+			}
+			Object old = node.value.get();
+			if (old == DELETED) {
+				continue;
+			}
+			if (!oldValue.equals(old)) {
+				return false;
+			}
+			if (node.value.compareAndSet(old, newValue)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		while (true) {
+			Node<K> node = findNode(key);
+			if (node == null) {
+				return null;
+			}
+			Object old = node.value.get();
+			if (old != DELETED && node.value.compareAndSet(old, value)) {
+				return valueOf(old);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		long total = size.sum();
+		return total > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(0, total);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return firstLive(head.next[0].getReference()) == null;
+	}
+
+	@Override
+	public void clear() {
+		for (Node<K> node = firstLive(head.next[0].getReference()); node != null;
+				node = firstLive(node.next[0].getReference())) {
+			doRemove(node.key, null);
+		}
+	}
+
+	/**
+	 * Returns `node` or the first live node after it at level 0.
+	 */
+	private static <K> Node<K> firstLive(Node<K> node) {
+		while (node != null && node.value.get() == DELETED) {
+			node = node.next[0].getReference();
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the first node with a key greater than (or, if `inclusive`,
+	 * equal to) `key`, or null.
+	 */
+	private Node<K> ceilingNode(K key, boolean inclusive) {
+		Node<K> pred = head;
+		for (int level=levelHint.get()-1; level>=0; level--) {
+			Node<K> curr = pred.next[level].getReference();
+			while (curr != null) {
+				int cmp = compare(key, curr.key);
+				if (cmp > 0 || (cmp == 0 && !inclusive)) {
+					pred = curr;
+					curr = curr.next[level].getReference();
+				} else {
+					break;
+				}
+			}
+		}
+		return firstLive(pred.next[0].getReference());
+	}
+
+	/**
+	 * @return the smallest key
+	 * @throws NoSuchElementException if the map is empty
+	 */
+	public K firstKey() {
+		Node<K> node = firstLive(head.next[0].getReference());
+		if (node == null) {
+			throw new NoSuchElementException();
+		}
+		return node.key;
+	}
+
+	/**
+	 * @return the largest key
+	 * @throws NoSuchElementException if the map is empty
+	 */
+	public K lastKey() {
+		// go right as far as possible at each level, then scan level 0
+		Node<K> pred = head;
+		for (int level=levelHint.get()-1; level>=0; level--) {
+			Node<K> curr = pred.next[level].getReference();
+			while (curr != null) {
+				pred = curr;
+				curr = curr.next[level].getReference();
+			}
+		}
+		// pred is the last node, but it might have been removed
+		if (pred != head && pred.value.get() != DELETED) {
+			return pred.key;
+		}
+		Node<K> last = null;
+		for (Node<K> node = firstLive(head.next[0].getReference()); node != null;
+				node = firstLive(node.next[0].getReference())) {
+			last = node;
+		}
+		if (last == null) {
+			throw new NoSuchElementException();
+		}
+		return last.key;
+	}
+
+	/**
+	 * @param key
+	 * @return the smallest key greater than or equal to `key`, or null
+	 */
+	public K ceilingKey(K key) {
+		Node<K> node = ceilingNode(key, true);
+		return node == null ? null : node.key;
+	}
+
+	/**
+	 * @param key
+	 * @return the smallest key strictly greater than `key`, or null
+	 */
+	public K higherKey(K key) {
+		Node<K> node = ceilingNode(key, false);
+		return node == null ? null : node.key;
+	}
+
+	/**
+	 * Returns the entries with keys from `fromKey` (inclusive) to `toKey`
+	 * (exclusive), in order.
+	 *
+	 * Either bound can be null, meaning no bound.  The iteration is
+	 * lazy: it finds the first key in O(log n) steps, then walks level 0,
+	 * so visiting k entries takes O(log n + k).  The entries are
+	 * snapshots; setValue is not supported.
+	 *
+	 * @param fromKey
+	 * @param toKey
+	 * @return
+	 */
+	public Iterable<Map.Entry<K, V>> entries(final K fromKey, final K toKey) {
+		return () -> new EntryIterator(fromKey, toKey);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator(null, null);
+			}
+
+			@Override
+			public int size() {
+				return MyConcurrentSkipListMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				MyConcurrentSkipListMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Walks level 0 from the first key >= `fromKey` to the last key < `toKey`.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		private final K toKey;
+		private Node<K> next;
+		private Object nextValue;
+		private K lastReturned = null;
+
+		EntryIterator(K fromKey, K toKey) {
+			this.toKey = toKey;
+			Node<K> node = fromKey == null ? head.next[0].getReference() : ceilingNode(fromKey, true);
+			advanceTo(node);
+		}
+
+		/**
+		 * Sets `next` to the first live node at or after `node` that is
+		 * in range, and remembers its value.
+		 */
+		private void advanceTo(Node<K> node) {
+			while (node != null) {
+				if (toKey != null && compare(node.key, toKey) >= 0) {
+					node = null;
+					break;
+				}
+				Object value = node.value.get();
+				if (value != DELETED) {
+					nextValue = value;
+					break;
+				}
+				node = node.next[0].getReference();
+			}
+			next = node;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<K, V>(next.key, valueOf(nextValue));
+			lastReturned = next.key;
+			advanceTo(next.next[0].getReference());
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			MyConcurrentSkipListMap.this.remove(lastReturned);
+			lastReturned = null;
+		}
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		MyConcurrentSkipListMap<String, Integer> map = new MyConcurrentSkipListMap<String, Integer>();
+		map.put("java", 1);
+		map.put("javascript", 2);
+		map.put("jazz", 3);
+		map.put("jam", 4);
+
+		// every term with the prefix "java"
+		for (Map.Entry<String, Integer> entry: map.entries("java", "javb")) {
+			System.out.println(entry);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for MyConcurrentSkipListMap.
+ *
+ */
+public class MyConcurrentSkipListMapTest {
+
+	private MyConcurrentSkipListMap<String, Integer> map;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyConcurrentSkipListMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put("Four", 4);
+	}
+
+	/**
+	 * Test method for {@link MyConcurrentSkipListMap#get(Object)} and
+	 * {@link MyConcurrentSkipListMap#put(Object, Object)}.
+	 */
+	@Test
+	public void testGetPut() {
+		assertThat(map.size(), is(4));
+		assertThat(map.get("Three"), is(3));
+		assertThat(map.get("Five"), nullValue());
+		assertThat(map.containsKey("One"), is(true));
+		assertThat(map.containsValue(4), is(true));
+
+		assertThat(map.put("Three", 33), is(3));
+		assertThat(map.get("Three"), is(33));
+		assertThat(map.size(), is(4));
+
+		try {
+			map.put(null, 0);
+			fail();
+		} catch (NullPointerException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyConcurrentSkipListMap#remove(Object)}.
+	 */
+	@Test
+	public void testRemove() {
+		assertThat(map.remove("Two"), is(2));
+		assertThat(map.remove("Two"), nullValue());
+		assertThat(map.get("Two"), nullValue());
+		assertThat(map.size(), is(3));
+
+		// put it back
+		assertThat(map.put("Two", 22), nullValue());
+		assertThat(map.get("Two"), is(22));
+
+		map.clear();
+		assertThat(map.size(), is(0));
+		assertThat(map.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for the ConcurrentMap methods.
+	 */
+	@Test
+	public void testAtomicOperations() {
+		assertThat(map.putIfAbsent("One", 11), is(1));
+		assertThat(map.putIfAbsent("Five", 5), nullValue());
+		assertThat(map.replace("Five", 4, 55), is(false));
+		assertThat(map.replace("Five", 5, 55), is(true));
+		assertThat(map.replace("Six", 6), nullValue());
+		assertThat(map.remove("Five", 5), is(false));
+		assertThat(map.remove("Five", 55), is(true));
+		assertThat(map.merge("One", 10, Integer::sum), is(11));
+	}
+
+	/**
+	 * Test method for iteration order and
+	 * {@link MyConcurrentSkipListMap#entries(Object, Object)}.
+	 */
+	@Test
+	public void testOrder() {
+		assertThat(new ArrayList<String>(map.keySet()), is(Arrays.asList("Four", "One", "Three", "Two")));
+		assertThat(map.firstKey(), is("Four"));
+		assertThat(map.lastKey(), is("Two"));
+		assertThat(map.ceilingKey("P"), is("Three"));
+		assertThat(map.higherKey("Three"), is("Two"));
+		assertThat(map.higherKey("Two"), nullValue());
+
+		List<String> keys = new ArrayList<String>();
+		for (Map.Entry<String, Integer> entry: map.entries("One", "Two")) {
+			keys.add(entry.getKey());
+		}
+		assertThat(keys, is(Arrays.asList("One", "Three")));
+
+		Iterator<String> iter = map.keySet().iterator();
+		iter.next();
+		iter.remove();
+		assertThat(map.containsKey("Four"), is(false));
+	}
+
+	/**
+	 * Compares random operations with TreeMap.
+	 */
+	@Test
+	public void testLikeTreeMap() {
+		MyConcurrentSkipListMap<Integer, Integer> mine = new MyConcurrentSkipListMap<Integer, Integer>();
+		TreeMap<Integer, Integer> theirs = new TreeMap<Integer, Integer>();
+		Random random = new Random(17);
+		for (int i=0; i<20000; i++) {
+			int key = random.nextInt(1000);
+			if (random.nextBoolean()) {
+				assertThat(mine.put(key, i), is(theirs.put(key, i)));
+			} else {
+				assertThat(mine.remove(key), is(theirs.remove(key)));
+			}
+		}
+		assertThat(mine.size(), is(theirs.size()));
+		assertThat(mine.equals(theirs), is(true));
+
+		List<Integer> keys = new ArrayList<Integer>();
+		for (Map.Entry<Integer, Integer> entry: mine.entries(250, 750)) {
+			keys.add(entry.getKey());
+		}
+		assertThat(keys, is(new ArrayList<Integer>(theirs.subMap(250, 750).keySet())));
+	}
+
+	/**
+	 * Puts and removes from several threads at once.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final MyConcurrentSkipListMap<Integer, Integer> cmap = new MyConcurrentSkipListMap<Integer, Integer>();
+		final int threads = 8;
+		final int perThread = 5000;
+
+		List<Thread> list = new ArrayList<Thread>();
+		for (int t=0; t<threads; t++) {
+			final int id = t;
+			Thread thread = new Thread(() -> {
+				// each thread puts its own keys and removes the odd ones,
+				// and all of them count into shared keys
+				for (int i=0; i<perThread; i++) {
+					int key = i * threads + id;
+					cmap.put(key, id);
+					if (i % 2 == 1) {
+						cmap.remove(key);
+					}
+					cmap.merge(-1 - (i % 10), 1, Integer::sum);
+				}
+			});
+			list.add(thread);
+			thread.start();
+		}
+		for (Thread thread: list) {
+			thread.join();
+		}
+
+		assertThat(cmap.size(), is(threads * perThread / 2 + 10));
+		int total = 0;
+		Integer previous = null;
+		for (Map.Entry<Integer, Integer> entry: cmap.entrySet()) {
+			int key = entry.getKey();
+			if (previous != null) {
+				assertThat(key > previous, is(true));
+			}
+			previous = key;
+			if (key < 0) {
+				total += entry.getValue();
+			} else {
+				assertThat((key / threads) % 2, is(0));
+				assertThat(entry.getValue(), is(key % threads));
+			}
+		}
+		assertThat(total, is(threads * perThread));
+	}
+}
@@ -4,11 +4,16 @@
 package com.allendowney.thinkdast;
 
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Implementation of a HashMap using a collection of MyLinearMap and
  * resizing when there are too many entries.
  *
+ * This class used to keep its own count of the entries, so size() was
+ * constant time and put was too.  MyBetterMap now does that for all its
+ * subclasses, so MyFixedHashMap is the same as MyHashMap.
+ *
  * @author downey
  * @param <K>
  * @param <V>
@@ -16,40 +21,40 @@ import java.util.Map;
  */
 public class MyFixedHashMap<K, V> extends MyHashMap<K, V> implements Map<K, V> {
 
-	private int size = 0;
-
-	@Override
-	public void clear() {
-		super.clear();
-		size = 0;
+	/**
+	 * Initialize the map with 2 sub-maps.
+	 */
+	public MyFixedHashMap() {
+		super();
 	}
 
-	@Override
-	public V put(K key, V value) {
-		MyLinearMap<K, V> map = chooseMap(key);
-		size -= map.size();
-		V oldValue = map.put(key, value);
-		size += map.size();
-
-		if (size() > maps.size() * FACTOR) {
-			size = 0;
-			rehash();
-		}
-		return oldValue;
+	/**
+	 * Initialize the map with 2 sub-maps and the given spreading function.
+	 *
+	 * @param spreader
+	 */
+	public MyFixedHashMap(IntUnaryOperator spreader) {
+		super(spreader);
 	}
 
-	@Override
-	public V remove(Object key) {
-		MyLinearMap<K, V> map = chooseMap(key);
-		size -= map.size();
-		V oldValue = map.remove(key);
-		size += map.size();
-		return oldValue;
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries.
+	 *
+	 * @param expectedSize
+	 */
+	public MyFixedHashMap(int expectedSize) {
+		super(expectedSize);
 	}
 
-	@Override
-	public int size() {
-		return size;
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries
+	 * at the given load factor.
+	 *
+	 * @param expectedSize
+	 * @param loadFactor average number of entries per map before we rehash
+	 */
+	public MyFixedHashMap(int expectedSize, double loadFactor) {
+		super(expectedSize, loadFactor);
 	}
 
 	/**
@@ -3,14 +3,20 @@
  */
 package com.allendowney.thinkdast;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Implementation of a HashMap using a collection of MyLinearMap and
  * resizing when there are too many entries.
  *
+ * The map can be made with room for an expected number of entries, and
+ * putAll makes room for all the new entries before adding them, so a
+ * bulk load rehashes at most once.  remove() halves the number of maps
+ * when they are less than LOW_WATER full, and trimToSize() shrinks the
+ * map as far as it can.
+ *
  * @author downey
  * @param <K>
  * @param <V>
@@ -18,9 +24,95 @@ import java.util.Map;
  */
 public class MyHashMap<K, V> extends MyBetterMap<K, V> implements Map<K, V> {
 
-	// average number of entries per map before we rehash
+	// average number of entries per map before we rehash, by default
 	protected static final double FACTOR = 1.0;
 
+	// when there are fewer than this fraction of loadFactor entries per
+	// map, remove() halves the number of maps
+	protected static final double LOW_WATER = 0.25;
+
+	// largest number of sub-maps
+	protected static final int MAX_MAPS = 1 << 30;
+
+	// average number of entries per map before we rehash
+	protected final double loadFactor;
+
+	// remove() doesn't shrink below the number of maps we started with
+	private final int minMaps;
+
+	/**
+	 * Initialize the map with 2 sub-maps.
+	 */
+	public MyHashMap() {
+		this(0, FACTOR, MyBetterMap::mix);
+	}
+
+	/**
+	 * Initialize the map with 2 sub-maps and the given spreading function.
+	 *
+	 * @param spreader
+	 */
+	public MyHashMap(IntUnaryOperator spreader) {
+		this(0, FACTOR, spreader);
+	}
+
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries,
+	 * so it doesn't rehash while they are added.
+	 *
+	 * @param expectedSize
+	 */
+	public MyHashMap(int expectedSize) {
+		this(expectedSize, FACTOR, MyBetterMap::mix);
+	}
+
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries
+	 * at the given load factor.
+	 *
+	 * @param expectedSize
+	 * @param loadFactor average number of entries per map before we rehash
+	 */
+	public MyHashMap(int expectedSize, double loadFactor) {
+		this(expectedSize, loadFactor, MyBetterMap::mix);
+	}
+
+	/**
+	 * @param expectedSize
+	 * @param loadFactor average number of entries per map before we rehash
+	 * @param spreader
+	 */
+	public MyHashMap(int expectedSize, double loadFactor, IntUnaryOperator spreader) {
+		super(spreader);
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("negative expected size: " + expectedSize);
+		}
+		if (!(loadFactor > 0) || Double.isInfinite(loadFactor)) {
+			throw new IllegalArgumentException("bad load factor: " + loadFactor);
+		}
+		this.loadFactor = loadFactor;
+		this.minMaps = capacityFor(expectedSize);
+		if (minMaps != maps.size()) {
+			makeMaps(minMaps);
+		}
+	}
+
+	/**
+	 * Returns the number of maps needed to hold `n` entries without
+	 * rehashing: a power of two, at least 2.
+	 *
+	 * @param n
+	 * @return
+	 */
+	protected int capacityFor(long n) {
+		double needed = Math.ceil(n / loadFactor);
+		int k = 2;
+		while (k < needed && k < MAX_MAPS) {
+			k *= 2;
+		}
+		return k;
+	}
+
 	@Override
 	public V put(K key, V value) {
 		V oldValue = super.put(key, value);
@@ -28,66 +120,94 @@ public class MyHashMap<K, V> extends MyBetterMap<K, V> implements Map<K, V> {
 		//System.out.println("Put " + key + " in " + map + " size now " + map.size());
 
 		// check if the number of elements per map exceeds the threshold
-		if (size() > maps.size() * FACTOR) {
+		if (size() > maps.size() * loadFactor) {
 			rehash();
 		}
 		return oldValue;
 	}
 
 	/**
-	 * Doubles the number of maps and rehashes the existing entries.
+	 * Makes room for all the entries of `map` first, so they are added
+	 * without rehashing more than once.
 	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		ensureCapacity((long) size() + map.size());
+		super.putAll(map);
+	}
+
+	@Override
+	public V remove(Object key) {
+		V oldValue = super.remove(key);
+		shrinkIfSparse();
+		return oldValue;
+	}
+
 	/**
+	 * Halves the number of maps if the map has fallen below the low-water
+	 * mark, but not below the number of maps we started with.
 	 *
+	 * Because LOW_WATER is less than half, a put right after a shrink
+	 * doesn't rehash again.
 	 */
-	protected void rehash() {
-		// TODO: FILL THIS IN!
-		// TWO SOLUTIONS:
+	protected void shrinkIfSparse() {
+		int k = maps.size();
+		if (k > minMaps && size() < k * loadFactor * LOW_WATER) {
+			resize(k / 2);
+		}
+	}
 
-		// SOLUTION 1 (my solution):
-		MyBetterMap<K,V> newMap = new MyBetterMap<>();
+	/**
+	 * Rehashes, if necessary, so the map can hold `n` entries without
+	 * rehashing again.
+	 *
+	 * @param n
+	 */
+	public void ensureCapacity(long n) {
+		int k = capacityFor(n);
+		if (k > maps.size()) {
+			resize(k);
+		}
+	}
 
-		int newSize = maps.size() * 2;
-		newMap.makeMaps(newSize);
+	/**
+	 * Rehashes into the smallest number of maps that holds the current
+	 * entries, to release memory after many removals.
+	 */
+	public void trimToSize() {
+		int k = capacityFor(size());
+		if (k < maps.size()) {
+			resize(k);
+		}
+	}
 
-		for(MyLinearMap<K,V> i : maps) {
-			for(Map.Entry<K,V> j : i.getEntries()) {
-				newMap.put(j.getKey(), j.getValue());
-			}
+	/**
+	 * Doubles the number of maps and rehashes the existing entries.
+	 */
+	protected void rehash() {
+		if (maps.size() < MAX_MAPS) {
+			resize(maps.size() * 2);
 		}
-		/* I was wondering why, when I omit the assignment line below this program works properly,
-		* and why MyHashTest passes all tests. I realized that because MyLinearMap and MyBetterMap
-		* are based on ArrayLists, They will grow indefinitely. Therefore, the tests should pass even when I
-		* comment out this whole method, which it does, and the program still works. I can print an
-		* iteration from 0 to 10 without the rehashing method. maps.size() remains at 2. */
-		maps = newMap.maps; // without this line, maps.size() stays at 2.
-
-		//SOLUTION 2 (Downey's solution):
-//		List<MyLinearMap<K,V>> oldMaps = maps;
-//
-//		int newSize = maps.size() *2;
-//		makeMaps(newSize);
-//
-//		for(MyLinearMap<K,V> i : oldMaps){
-//			for(Map.Entry<K,V> j : i.getEntries()){
-//				put(j.getKey(), j.getValue());
-//			}
-//		}
-		//MY TESTS
-//		System.out.println("oldMaps size: " + oldMaps.size());
-//		System.out.println("newMap size: " + newMap.size());
-//		System.out.println("maps size: " + maps.size());
-//		int count = 0;
-//		System.out.print("[");
-//		for(MyLinearMap<K,V> i : maps) {
-//			for(Map.Entry<K,V> j : i.getEntries()){
-//				System.out.print(count++ + ", ");
-//			}
-//		}
-//		System.out.print("]\n");
-//		System.out.println("----------------------------");
-//		maps = newMap.maps;
+	}
 
+	/**
+	 * Rehashes the existing entries into `k` maps.
+	 *
+	 * The entries remember their hash codes, so this doesn't call
+	 * hashCode, and since the keys are already distinct it doesn't call
+	 * equals either.
+	 *
+	 * @param k a power of two
+	 */
+	protected void resize(int k) {
+		List<MyLinearMap<K, V>> oldMaps = maps;
+		makeMaps(k);
+		for (MyLinearMap<K, V> map: oldMaps) {
+			for (MyLinearMap<K, V>.Entry entry: map.getHashedEntries()) {
+				int hash = entry.getHash();
+				chooseMapByHash(hash).addNew(entry.getKey(), entry.getValue(), hash);
+			}
+		}
 	}
 
 	/**
@@ -3,6 +3,15 @@
  */
 package com.allendowney.thinkdast;
 
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -24,4 +33,314 @@ public class MyHashMapTest extends MyLinearMapTest {
 		map.put("Three", 3);
 		map.put(null, 0);
 	}
+
+	/**
+	 * A key with a chosen hash code that counts calls to hashCode.
+	 */
+	private static class Key {
+		static int hashCalls = 0;
+		final int id;
+		final int hash;
+
+		Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && ((Key) other).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			hashCalls++;
+			return hash;
+		}
+	}
+
+	/**
+	 * A Comparable key whose hash code is always the same, that counts
+	 * calls to compareTo.
+	 */
+	private static class Colliding implements Comparable<Colliding> {
+		static int compareCalls = 0;
+		final int id;
+
+		Colliding(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Colliding && ((Colliding) other).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public int compareTo(Colliding that) {
+			compareCalls++;
+			return Integer.compare(id, that.id);
+		}
+	}
+
+	/**
+	 * Test method for {@link MyLinearMap#isTree()}.
+	 */
+	@Test
+	public void testTreeify() {
+		MyHashMap<Colliding, Integer> m = new MyHashMap<Colliding, Integer>();
+		int n = 1000;
+		for (int i=0; i<n; i++) {
+			m.put(new Colliding(i), i);
+		}
+		MyLinearMap<Colliding, Integer> chain = m.chooseMap(new Colliding(0));
+		assertThat(chain.size(), is(n));
+		assertThat(chain.isTree(), is(true));
+
+		// a lookup takes O(log n) comparisons, not n
+		Colliding.compareCalls = 0;
+		for (int i=0; i<n; i++) {
+			assertThat(m.get(new Colliding(i)), is(i));
+		}
+		assertThat(m.get(new Colliding(n)), nullValue());
+		assertThat(Colliding.compareCalls < 20 * (n+1), is(true));
+
+		// shrinking turns it back into a list
+		for (int i=0; i<n-5; i++) {
+			assertThat(m.remove(new Colliding(i)), is(i));
+		}
+		chain = m.chooseMap(new Colliding(0));
+		assertThat(chain.isTree(), is(false));
+		assertThat(m.size(), is(5));
+		for (int i=n-5; i<n; i++) {
+			assertThat(m.get(new Colliding(i)), is(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyLinearMap#isTree()}.
+	 */
+	@Test
+	public void testTreeifyMixedKeys() {
+		MyHashMap<Object, Integer> m = new MyHashMap<Object, Integer>();
+		for (int i=0; i<20; i++) {
+			m.put(new Colliding(i), i);
+		}
+		assertThat(m.chooseMap(new Colliding(0)).isTree(), is(true));
+
+		// a key of another class, with the same hash code, can't go in the tree
+		Key other = new Key(-1, 42);
+		m.put(other, -1);
+		assertThat(m.chooseMap(other).isTree(), is(false));
+		assertThat(m.get(other), is(-1));
+		for (int i=0; i<20; i++) {
+			assertThat(m.get(new Colliding(i)), is(i));
+		}
+		assertThat(m.size(), is(21));
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#MyHashMap(int, double)}.
+	 */
+	@Test
+	public void testExpectedSize() {
+		MyHashMap<Integer, Integer> m = new MyHashMap<Integer, Integer>(1000, 0.75);
+		assertThat(m.maps.size(), is(2048));
+		Object before = m.maps;
+		for (int i=0; i<1000; i++) {
+			m.put(i, i);
+		}
+		// no rehash
+		assertThat(m.maps == before, is(true));
+
+		assertThat(new MyHashMap<Integer, Integer>(0).maps.size(), is(2));
+		assertThat(new MyHashMap<Integer, Integer>(5).maps.size(), is(8));
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#MyHashMap(int, double)}.
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testBadLoadFactor() {
+		new MyHashMap<Integer, Integer>(10, 0.0);
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#putAll(java.util.Map)}.
+	 */
+	@Test
+	public void testPutAllPresizes() {
+		Map<Integer, Integer> source = new HashMap<Integer, Integer>();
+		for (int i=0; i<1000; i++) {
+			source.put(i, i);
+		}
+		MyHashMap<Integer, Integer> m = new MyHashMap<Integer, Integer>();
+		m.putAll(source);
+		assertThat(m.maps.size(), is(1024));
+		assertThat(m.size(), is(1000));
+		for (int i=0; i<1000; i++) {
+			assertThat(m.get(i), is(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#remove(Object)}.
+	 */
+	@Test
+	public void testShrink() {
+		MyHashMap<Integer, Integer> m = new MyHashMap<Integer, Integer>();
+		for (int i=0; i<1000; i++) {
+			m.put(i, i);
+		}
+		assertThat(m.maps.size(), is(1024));
+		for (int i=0; i<990; i++) {
+			m.remove(i);
+		}
+		// fewer than a quarter full after every remove
+		assertThat(m.maps.size() <= 64, is(true));
+		assertThat(m.size(), is(10));
+		for (int i=990; i<1000; i++) {
+			assertThat(m.get(i), is(i));
+		}
+
+		// but not below the size we asked for
+		MyHashMap<Integer, Integer> big = new MyHashMap<Integer, Integer>(1000);
+		big.put(1, 1);
+		big.remove(1);
+		assertThat(big.maps.size(), is(1024));
+		big.trimToSize();
+		assertThat(big.maps.size(), is(2));
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#trimToSize()}.
+	 */
+	@Test
+	public void testTrimToSize() {
+		MyIncrementalHashMap<Integer, Integer> m = new MyIncrementalHashMap<Integer, Integer>(4000);
+		for (int i=0; i<100; i++) {
+			m.put(i, i);
+		}
+		m.trimToSize();
+		assertThat(m.maps.size(), is(128));
+		for (int i=0; i<100; i++) {
+			assertThat(m.get(i), is(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#size()}.
+	 */
+	@Test
+	public void testSizeTracking() {
+		List<Map<Integer, Integer>> maps = new ArrayList<Map<Integer, Integer>>();
+		maps.add(new MyBetterMap<Integer, Integer>());
+		maps.add(new MyHashMap<Integer, Integer>());
+		maps.add(new MyFixedHashMap<Integer, Integer>());
+		maps.add(new MyIncrementalHashMap<Integer, Integer>());
+		for (Map<Integer, Integer> mine: maps) {
+			Map<Integer, Integer> theirs = new HashMap<Integer, Integer>();
+			Random random = new Random(17);
+			for (int i=0; i<5000; i++) {
+				Integer key = random.nextInt(1000);
+				if (random.nextInt(3) == 0) {
+					assertThat(mine.remove(key), is(theirs.remove(key)));
+				} else {
+					// null values still count
+					Integer value = random.nextInt(10) == 0 ? null : i;
+					assertThat(mine.put(key, value), is(theirs.put(key, value)));
+				}
+				assertThat(mine.size(), is(theirs.size()));
+			}
+			mine.putAll(theirs);
+			assertThat(mine.size(), is(theirs.size()));
+			mine.clear();
+			assertThat(mine.size(), is(0));
+			assertThat(mine.isEmpty(), is(true));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#indexForHash(int, int)}.
+	 */
+	@Test
+	public void testMinValueHash() {
+		MyHashMap<Key, Integer> m = new MyHashMap<Key, Integer>();
+		Key key = new Key(1, Integer.MIN_VALUE);
+		m.put(key, 1);
+		m.put(new Key(2, -1), 2);
+		assertThat(m.get(key), is(1));
+		assertThat(m.get(new Key(2, -1)), is(2));
+	}
+
+	/**
+	 * Test method for {@link MyHashMap#rehash()}.
+	 */
+	@Test
+	public void testRehashUsesCachedHash() {
+		MyHashMap<Key, Integer> m = new MyHashMap<Key, Integer>();
+		Key.hashCalls = 0;
+		for (int i=0; i<1000; i++) {
+			m.put(new Key(i, i), i);
+		}
+		// one call per put, none during the rehashes
+		assertThat(Key.hashCalls, is(1000));
+		for (int i=0; i<1000; i++) {
+			assertThat(m.get(new Key(i, i)), is(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#bucketHistogram()}.
+	 */
+	@Test
+	public void testBucketHistogram() {
+		MyHashMap<Key, Integer> m = new MyHashMap<Key, Integer>();
+		for (int i=0; i<100; i++) {
+			m.put(new Key(i, i), i);
+		}
+		int[] counts = m.bucketHistogram();
+		int maps = 0;
+		int entries = 0;
+		for (int i=0; i<counts.length; i++) {
+			maps += counts[i];
+			entries += i * counts[i];
+		}
+		assertThat(maps, is(m.maps.size()));
+		assertThat(entries, is(100));
+
+		// keys that all have the same hash code share one sub-map
+		MyHashMap<Key, Integer> bad = new MyHashMap<Key, Integer>();
+		for (int i=0; i<100; i++) {
+			bad.put(new Key(i, 17), i);
+		}
+		counts = bad.bucketHistogram();
+		assertThat(counts.length, is(101));
+		assertThat(counts[100], is(1));
+	}
+
+	/**
+	 * Test method for {@link MyBetterMap#MyBetterMap(java.util.function.IntUnaryOperator)}.
+	 */
+	@Test
+	public void testSpreader() {
+		// without mixing, multiples of 1024 all land in sub-map 0
+		// until there are more than 1024 sub-maps
+		MyHashMap<Integer, Integer> identity = new MyHashMap<Integer, Integer>(h -> h);
+		MyHashMap<Integer, Integer> mixed = new MyHashMap<Integer, Integer>();
+		for (int i=0; i<256; i++) {
+			identity.put(i * 1024, i);
+			mixed.put(i * 1024, i);
+		}
+		assertThat(identity.bucketHistogram().length, is(257));
+		assertThat(mixed.bucketHistogram().length < 10, is(true));
+		for (int i=0; i<256; i++) {
+			assertThat(mixed.get(i * 1024), is(i));
+		}
+	}
 }
@@ -0,0 +1,294 @@
+/**
+ *
+ */
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Implementation of a HashMap that rehashes incrementally.
+ *
+ * MyHashMap.rehash moves every entry during a single put, so that put
+ * takes time proportional to the size of the map.  This version keeps
+ * the old and new collections of sub-maps side by side, and each put,
+ * get, containsKey and remove moves at most STEP of the old sub-maps into
+ * the new ones.  No single operation does more than a constant number of
+ * sub-maps' worth of work.
+ *
+ * While a rehash is in progress, a key lives in the old collection if its
+ * old sub-map has not been moved yet, and in the new collection otherwise.
+ * Since the number of sub-maps doubles, the entries of old sub-map i go
+ * to new sub-maps i and i+k, where k is the old number of sub-maps; those
+ * two are created when sub-map i is moved, so starting a rehash does not
+ * allocate all the new sub-maps at once.
+ *
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyIncrementalHashMap<K, V> extends MyHashMap<K, V> implements Map<K, V> {
+
+	// number of old sub-maps moved per operation during a rehash
+	protected static final int STEP = 4;
+
+	// sub-maps from before the current rehash, or null if there is none
+	private List<MyLinearMap<K, V>> oldMaps = null;
+
+	// index of the next sub-map in oldMaps to move
+	private int nextToMove = 0;
+
+	/**
+	 * Initialize the map with 2 sub-maps.
+	 */
+	public MyIncrementalHashMap() {
+		super();
+	}
+
+	/**
+	 * Initialize the map with 2 sub-maps and the given spreading function.
+	 *
+	 * @param spreader
+	 */
+	public MyIncrementalHashMap(IntUnaryOperator spreader) {
+		super(spreader);
+	}
+
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries.
+	 *
+	 * @param expectedSize
+	 */
+	public MyIncrementalHashMap(int expectedSize) {
+		super(expectedSize);
+	}
+
+	/**
+	 * Initialize the map with enough sub-maps for `expectedSize` entries
+	 * at the given load factor.
+	 *
+	 * @param expectedSize
+	 * @param loadFactor average number of entries per map before we rehash
+	 */
+	public MyIncrementalHashMap(int expectedSize, double loadFactor) {
+		super(expectedSize, loadFactor);
+	}
+
+	@Override
+	protected MyLinearMap<K, V> chooseMapByHash(int hash) {
+		if (oldMaps != null) {
+			int index = indexForHash(hash, oldMaps.size());
+			if (index >= nextToMove) {
+				return oldMaps.get(index);
+			}
+		}
+		return super.chooseMapByHash(hash);
+	}
+
+	/**
+	 * Returns true if a rehash has started but not finished.
+	 *
+	 * @return
+	 */
+	public boolean isRehashing() {
+		return oldMaps != null;
+	}
+
+	/**
+	 * Starts a rehash into twice as many sub-maps, unless there are
+	 * already MAX_MAPS.
+	 *
+	 * The entries are moved later, a few sub-maps at a time, by step().
+	 */
+	@Override
+	protected void rehash() {
+		if (oldMaps != null) {
+			finishRehash();
+		}
+		if (maps.size() >= MAX_MAPS) {
+			return;
+		}
+		oldMaps = maps;
+		nextToMove = 0;
+
+		// the new sub-maps are filled in by moveMap
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		MyLinearMap<K, V>[] array = new MyLinearMap[oldMaps.size() * 2];
+		maps = Arrays.asList(array);
+	}
+
+	/**
+	 * Finishes any rehash in progress, then rehashes all at once.
+	 *
+	 * This is only used by ensureCapacity and trimToSize, which the
+	 * caller asks for; remove() doesn't shrink this map, since that
+	 * would not be incremental.
+	 */
+	@Override
+	protected void resize(int k) {
+		finishRehash();
+		super.resize(k);
+	}
+
+	/**
+	 * Moves up to STEP sub-maps from the old collection to the new one.
+	 */
+	protected void step() {
+		if (oldMaps == null) {
+			return;
+		}
+		for (int i=0; i<STEP && nextToMove < oldMaps.size(); i++) {
+			moveMap(nextToMove);
+			nextToMove++;
+		}
+		if (nextToMove == oldMaps.size()) {
+			oldMaps = null;
+		}
+	}
+
+	/**
+	 * Moves whatever is left of the current rehash.
+	 */
+	private void finishRehash() {
+		while (oldMaps != null) {
+			step();
+		}
+	}
+
+	/**
+	 * Moves the entries of one old sub-map into the new collection.
+	 *
+	 * @param index
+	 */
+	private void moveMap(int index) {
+		maps.set(index, makeMap());
+		maps.set(index + oldMaps.size(), makeMap());
+
+		// the entries remember their hash codes, and the keys are distinct
+		MyLinearMap<K, V> map = oldMaps.get(index);
+		for (MyLinearMap<K, V>.Entry entry: map.getHashedEntries()) {
+			int hash = entry.getHash();
+			maps.get(indexForHash(hash, maps.size())).addNew(entry.getKey(), entry.getValue(), hash);
+		}
+		// chooseMap no longer looks here, so let the entries be collected
+		oldMaps.set(index, null);
+	}
+
+	/**
+	 * Returns the sub-maps that currently hold entries.
+	 *
+	 * During a rehash that is the old sub-maps that have not been moved
+	 * and the new sub-maps that have been created.
+	 *
+	 * @return
+	 */
+	@Override
+	protected List<MyLinearMap<K, V>> liveMaps() {
+		if (oldMaps == null) {
+			return maps;
+		}
+		List<MyLinearMap<K, V>> live = new ArrayList<MyLinearMap<K, V>>();
+		live.addAll(oldMaps.subList(nextToMove, oldMaps.size()));
+		for (MyLinearMap<K, V> map: maps) {
+			if (map != null) {
+				live.add(map);
+			}
+		}
+		return live;
+	}
+
+	@Override
+	public void clear() {
+		if (oldMaps != null) {
+			oldMaps = null;
+			nextToMove = 0;
+			makeMaps(maps.size());
+		}
+		super.clear();
+	}
+
+	@Override
+	public boolean containsKey(Object target) {
+		step();
+		return super.containsKey(target);
+	}
+
+	@Override
+	public boolean containsValue(Object target) {
+		for (MyLinearMap<K, V> map: liveMaps()) {
+			if (map.containsValue(target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		step();
+		return super.get(key);
+	}
+
+	@Override
+	public Set<K> keySet() {
+		Set<K> set = new HashSet<K>();
+		for (MyLinearMap<K, V> map: liveMaps()) {
+			set.addAll(map.keySet());
+		}
+		return set;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		step();
+		int hash = MyLinearMap.hash(key);
+		MyLinearMap<K, V> map = chooseMapByHash(hash);
+		size -= map.size();
+		V oldValue = map.putHashed(key, value, hash);
+		size += map.size();
+
+		if (oldMaps == null && size > maps.size() * loadFactor) {
+			rehash();
+		}
+		return oldValue;
+	}
+
+	@Override
+	public V remove(Object key) {
+		step();
+		int hash = MyLinearMap.hash(key);
+		MyLinearMap<K, V> map = chooseMapByHash(hash);
+		size -= map.size();
+		V oldValue = map.removeHashed(key, hash);
+		size += map.size();
+		return oldValue;
+	}
+
+	@Override
+	public Collection<V> values() {
+		Set<V> set = new HashSet<V>();
+		for (MyLinearMap<K, V> map: liveMaps()) {
+			set.addAll(map.values());
+		}
+		return set;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		MyIncrementalHashMap<String, Integer> map = new MyIncrementalHashMap<String, Integer>();
+		for (int i=0; i<10; i++) {
+			map.put(Integer.toString(i), i);
+			System.out.println("size " + map.size() + ", rehashing " + map.isRehashing());
+		}
+		Integer value = map.get("3");
+		System.out.println(value);
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the MyLinearMap tests against MyIncrementalHashMap, plus a
+ * randomized test that checks lookups while a rehash is in progress.
+ *
+ */
+public class MyIncrementalHashMapTest extends MyLinearMapTest {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyIncrementalHashMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put(null, 0);
+	}
+
+	/**
+	 * Test method for {@link MyIncrementalHashMap#put(Object, Object)}.
+	 */
+	@Test
+	public void testRandomOperations() {
+		MyIncrementalHashMap<Integer, Integer> mine = new MyIncrementalHashMap<Integer, Integer>();
+		Map<Integer, Integer> theirs = new HashMap<Integer, Integer>();
+		Random random = new Random(17);
+		boolean sawRehash = false;
+
+		for (int i=0; i<20000; i++) {
+			Integer key = random.nextInt(5000);
+			switch (random.nextInt(3)) {
+			case 0:
+				assertThat(mine.remove(key), is(theirs.remove(key)));
+				break;
+			case 1:
+				assertThat(mine.get(key), is(theirs.get(key)));
+				break;
+			default:
+				assertThat(mine.put(key, i), is(theirs.put(key, i)));
+			}
+			assertThat(mine.size(), is(theirs.size()));
+			sawRehash |= mine.isRehashing();
+		}
+		assertThat(sawRehash, is(true));
+		assertThat(mine.keySet(), is(theirs.keySet()));
+		for (Integer key: theirs.keySet()) {
+			assertThat(mine.containsKey(key), is(true));
+			assertThat(mine.get(key), is(theirs.get(key)));
+		}
+	}
+}
@@ -14,6 +14,14 @@ import java.util.Set;
  * Implementation of a Map using a List of entries, so most
  * operations are linear time.
  *
+ * When it is a sub-map of a hash table, a MyLinearMap can also switch
+ * to a balanced tree.  If there are more than TREEIFY_THRESHOLD entries
+ * and all the keys are Comparable and of the same class, the entries
+ * move into a MyTreeMap, so lookups take O(log n) even when many keys
+ * have the same hash code.  When there are fewer than
+ * UNTREEIFY_THRESHOLD entries, or a key of another class arrives, they
+ * move back into the list.
+ *
  * @author downey
  * @param <K>
  * @param <V>
@@ -21,15 +29,65 @@ import java.util.Set;
  */
 public class MyLinearMap<K, V> implements Map<K, V> {
 
+	// more entries than this, with Comparable keys, and we make a tree
+	public static final int TREEIFY_THRESHOLD = 8;
+
+	// fewer entries than this, and we go back to a list
+	public static final int UNTREEIFY_THRESHOLD = 6;
+
 	private List<Entry> entries = new ArrayList<Entry>();
 
+	// whether this map is allowed to make a tree
+	private final boolean treeify;
+
+	// when there is a tree, the entries are here instead of in `entries`,
+	// and every key is an instance of treeClass
+	private MyTreeMap<K, Entry> tree = null;
+	private Class<?> treeClass = null;
+
+	/**
+	 * Makes a map that is always a list.
+	 */
+	public MyLinearMap() {
+		this(false);
+	}
+
+	/**
+	 * @param treeify whether to switch to a tree when there are many
+	 *        entries with Comparable keys
+	 */
+	protected MyLinearMap(boolean treeify) {
+		this.treeify = treeify;
+	}
+
 	public class Entry implements Map.Entry<K, V> {
 		private K key;
 		private V value;
+		private final int hash;
 
 		public Entry(K key, V value) {
+			this(key, value, hash(key));
+		}
+
+		/**
+		 * @param key
+		 * @param value
+		 * @param hash the hash code of `key`, computed by the caller
+		 */
+		public Entry(K key, V value, int hash) {
 			this.key = key;
 			this.value = value;
+			this.hash = hash;
+		}
+
+		/**
+		 * Returns the hash code of the key, cached when the entry was made,
+		 * so a rehash can move the entry without calling hashCode again.
+		 *
+		 * @return
+		 */
+		public int getHash() {
+			return hash;
 		}
 
 		@Override
@@ -50,6 +108,8 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 	@Override
 	public void clear() {
 		entries.clear();
+		tree = null;
+		treeClass = null;
 	}
 
 	@Override
@@ -57,21 +117,115 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 		return findEntry(target) != null;
 	}
 
+	/**
+	 * Returns the hash code of a key, or 0 for null.
+	 *
+	 * @param key
+	 * @return
+	 */
+	static int hash(Object key) {
+		return key == null ? 0 : key.hashCode();
+	}
+
 	/**
 	 * Returns the entry that contains the target key, or null if there is none.
 	 *
 	 * @param target
 	 */
 	private Entry findEntry(Object target) {
+		return findEntry(target, hash(target));
+	}
+
+	/**
+	 * Returns the entry that contains the target key, or null if there is none.
+	 *
+	 * Comparing the cached hash codes first means we only call equals
+	 * on entries that are likely to match.
+	 *
+	 * @param target
+	 * @param hash the hash code of `target`
+	 */
+	private Entry findEntry(Object target, int hash) {
+		if (tree != null && fitsTree(target)) {
+			Entry e = tree.get(target);
+			// compareTo might say 0 for keys that are not equal
+			return e != null && equals(target, e.getKey()) ? e : null;
+		}
 		// TODO: FILL THIS IN!
-		for(Entry i : this.entries) {
-			if(equals(target, i.getKey())) {
+		// a key of another class might still equal one of ours
+		for(Entry i : allEntries()) {
+			if(i.hash == hash && equals(target, i.getKey())) {
 				return i;
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the entries, from the list or the tree.
+	 *
+	 * @return
+	 */
+	private Collection<Entry> allEntries() {
+		return tree == null ? entries : tree.values();
+	}
+
+	/**
+	 * Returns true if the entries are in a tree.
+	 *
+	 * @return
+	 */
+	public boolean isTree() {
+		return tree != null;
+	}
+
+	/**
+	 * Checks whether a key can go in (or be looked up in) the tree.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private boolean fitsTree(Object key) {
+		return key != null && key.getClass() == treeClass;
+	}
+
+	/**
+	 * Moves the entries into a tree, if all the keys are Comparable and
+	 * of the same class.
+	 */
+	private void treeifyIfComparable() {
+		Object first = entries.get(0).getKey();
+		if (first == null || !(first instanceof Comparable)) {
+			return;
+		}
+		Class<?> c = first.getClass();
+		for (Entry e: entries) {
+			if (e.getKey() == null || e.getKey().getClass() != c) {
+				return;
+			}
+		}
+		MyTreeMap<K, Entry> newTree = new MyTreeMap<K, Entry>();
+		for (Entry e: entries) {
+			newTree.put(e.getKey(), e);
+		}
+		if (newTree.size() != entries.size()) {
+			// compareTo is not consistent with equals for these keys
+			return;
+		}
+		tree = newTree;
+		treeClass = c;
+		entries.clear();
+	}
+
+	/**
+	 * Moves the entries from the tree back into the list.
+	 */
+	private void untreeify() {
+		entries.addAll(tree.values());
+		tree = null;
+		treeClass = null;
+	}
+
 	/**
 	 * Compares two keys or two values, handling null correctly.
 	 *
@@ -88,7 +242,7 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 
 	@Override
 	public boolean containsValue(Object target) {
-		for (Map.Entry<K, V> entry: entries) {
+		for (Map.Entry<K, V> entry: allEntries()) {
 			if (equals(target, entry.getValue())) {
 				return true;
 			}
@@ -103,23 +257,45 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V get(Object key) {
+		return getHashed(key, hash(key));
+	}
+
+	/**
+	 * Like get(key), but uses a hash code the caller already computed.
+	 *
+	 * @param key
+	 * @param hash
+	 * @return
+	 */
+	protected V getHashed(Object key, int hash) {
 		// TODO: FILL THIS IN!
-		Entry e = findEntry(key);
+		Entry e = findEntry(key, hash);
 		if (e == null) {
 			return null;
 		}
 		return e.getValue();
 	}
 
+	/**
+	 * Like containsKey(key), but uses a hash code the caller already computed.
+	 *
+	 * @param key
+	 * @param hash
+	 * @return
+	 */
+	protected boolean containsKeyHashed(Object key, int hash) {
+		return findEntry(key, hash) != null;
+	}
+
 	@Override
 	public boolean isEmpty() {
-		return entries.isEmpty();
+		return size() == 0;
 	}
 
 	@Override
 	public Set<K> keySet() {
 		Set<K> set = new HashSet<K>();
-		for (Entry entry: entries) {
+		for (Entry entry: allEntries()) {
 			set.add(entry.getKey());
 		}
 		return set;
@@ -127,11 +303,23 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 
 	@Override
 	public V put(K key, V value) {
+		return putHashed(key, value, hash(key));
+	}
+
+	/**
+	 * Like put(key, value), but uses a hash code the caller already computed.
+	 *
+	 * @param key
+	 * @param value
+	 * @param hash
+	 * @return
+	 */
+	protected V putHashed(K key, V value, int hash) {
 		// TODO: FILL THIS IN!
 		// solution
-		Entry ne = findEntry(key);
+		Entry ne = findEntry(key, hash);
 		if(ne == null) {
-			entries.add(new Entry(key, value));
+			addNew(key, value, hash);
 			return null;
 		} else {
 			V oldValue = ne.getValue();
@@ -167,15 +355,60 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 		}
 	}
 
+	/**
+	 * Adds an entry without checking whether the key is already here.
+	 *
+	 * Only for callers that know the key is new, like a rehash that is
+	 * moving entries from another map.
+	 *
+	 * @param key
+	 * @param value
+	 * @param hash
+	 */
+	protected void addNew(K key, V value, int hash) {
+		Entry entry = new Entry(key, value, hash);
+		if (tree != null) {
+			if (fitsTree(key) && !tree.containsKey(key)) {
+				tree.put(key, entry);
+				return;
+			}
+			untreeify();
+		}
+		entries.add(entry);
+		// try once as we pass the threshold; if the keys don't fit in a
+		// tree now, checking again on every add would make adds O(n)
+		if (treeify && entries.size() == TREEIFY_THRESHOLD + 1) {
+			treeifyIfComparable();
+		}
+	}
+
 	@Override
 	public V remove(Object key) {
+		return removeHashed(key, hash(key));
+	}
+
+	/**
+	 * Like remove(key), but uses a hash code the caller already computed.
+	 *
+	 * @param key
+	 * @param hash
+	 * @return
+	 */
+	protected V removeHashed(Object key, int hash) {
 		// TODO: FILL THIS IN!
-		Entry e = findEntry(key);
-		V value = e.getValue();
+		Entry e = findEntry(key, hash);
 		if(e == null) {
 			return null;
 		} else {
-			entries.remove(e);
+			V value = e.getValue();
+			if (tree != null) {
+				tree.remove(e.getKey());
+				if (tree.size() < UNTREEIFY_THRESHOLD) {
+					untreeify();
+				}
+			} else {
+				entries.remove(e);
+			}
 			return value;
 		}
 
@@ -183,13 +416,13 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 
 	@Override
 	public int size() {
-		return entries.size();
+		return tree == null ? entries.size() : tree.size();
 	}
 
 	@Override
 	public Collection<V> values() {
 		Set<V> set = new HashSet<V>();
-		for (Entry entry: entries) {
+		for (Entry entry: allEntries()) {
 			set.add(entry.getValue());
 		}
 		return set;
@@ -219,6 +452,15 @@ public class MyLinearMap<K, V> implements Map<K, V> {
 	 * @return
 	 */
 	protected Collection<? extends java.util.Map.Entry<K, V>> getEntries() {
-		return entries;
+		return allEntries();
+	}
+
+	/**
+	 * Returns the entries, with their cached hash codes.
+	 *
+	 * @return
+	 */
+	protected Collection<Entry> getHashedEntries() {
+		return allEntries();
 	}
 }
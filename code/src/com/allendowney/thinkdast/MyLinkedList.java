@@ -1,53 +1,73 @@
 /**
- * 
+ *
  */
 package com.allendowney.thinkdast;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
+ * A doubly linked list.
+ *
+ * Two sentinel nodes mark the ends of the list, so adding or removing at
+ * either end takes constant time and never needs a special case for an
+ * empty list.  get(index) walks from whichever end is closer.
+ *
+ * Since adding and removing at both ends is cheap, MyLinkedList is also
+ * a Deque, so it can be used as a queue or a stack.
+ *
  * @author downey
  * @param <E>
  *
  */
-public class MyLinkedList<E> implements List<E> {
+public class MyLinkedList<E> implements List<E>, Deque<E> {
 
 	/**
-	 * Node is identical to ListNode from the example, but parameterized with T
+	 * Node is like ListNode from the example, but parameterized with T
+	 * and with a link to the previous node as well as the next.
 	 *
 	 * @author downey
 	 *
 	 */
 	private class Node {
 		public E data;
+		public Node prev;
 		public Node next;
 
 		public Node(E data) {
 			this.data = data;
+			this.prev = null;
 			this.next = null;
 		}
-		@SuppressWarnings("unused")
-		public Node(E data, Node next) {
+		public Node(E data, Node prev, Node next) {
 			this.data = data;
+			this.prev = prev;
 			this.next = next;
 		}
 		public String toString() {
-			return "Node(" + data.toString() + ")";
+			return "Node(" + data + ")";
 		}
 	}
 
 	private int size;            // keeps track of the number of elements
-	private Node head;           // reference to the first node
+	private final Node head;     // sentinel before the first node
+	private final Node tail;     // sentinel after the last node
+	private int modCount = 0;    // counts adds and removes, so iterators can fail fast
 
 	/**
 	 *
 	 */
 	public MyLinkedList() {
-		head = null;
+		head = new Node(null);
+		tail = new Node(null);
+		head.next = tail;
+		tail.prev = head;
 		size = 0;
 	}
 
@@ -66,30 +86,46 @@ public class MyLinkedList<E> implements List<E> {
 		System.out.println(Arrays.toString(mll.toArray()) + " size = " + mll.size());
 	}
 
+	/**
+	 * Makes a new node for `element` and links it in before `succ`.
+	 *
+	 * @param element
+	 * @param succ
+	 */
+	private void linkBefore(E element, Node succ) {
+		Node node = new Node(element, succ.prev, succ);
+		succ.prev.next = node;
+		succ.prev = node;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes `node` from the list.
+	 *
+	 * @param node must not be a sentinel
+	 * @return the element it held
+	 */
+	private E unlink(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		size--;
+		modCount++;
+		return node.data;
+	}
+
 	@Override
 	public boolean add(E element) {
-		if (head == null) {
-			head = new Node(element);
-		} else {
-			Node node = head;
-			// loop until the last node
-			for ( ; node.next != null; node = node.next) {}
-			node.next = new Node(element);
-		}
-		size++;
+		linkBefore(element, tail);
 		return true;
 	}
 
 	@Override
 	public void add(int index, E element) {
-		//TODO: FILL THIS IN!
-		if (index == 0) {
-			head = new Node(element, head);
-		} else {
-			Node node = getNode(index-1);
-			node.next = new Node(element, node.next);
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException();
 		}
-		size++;
+		linkBefore(element, index == size ? tail : getNode(index));
 	}
 
 	@Override
@@ -108,8 +144,10 @@ public class MyLinkedList<E> implements List<E> {
 
 	@Override
 	public void clear() {
-		head = null;
+		head.next = tail;
+		tail.prev = head;
 		size = 0;
+		modCount++;
 	}
 
 	@Override
@@ -134,6 +172,9 @@ public class MyLinkedList<E> implements List<E> {
 	}
 
 	/** Returns the node at the given index.
+	 *
+	 * Walks from the head or the tail, whichever is closer.
+	 *
 	 * @param index
 	 * @return
 	 */
@@ -141,24 +182,29 @@ public class MyLinkedList<E> implements List<E> {
 		if (index < 0 || index >= size) {
 			throw new IndexOutOfBoundsException();
 		}
-		Node node = head;
-		for (int i=0; i<index; i++) {
-			node = node.next;
+		if (index < size / 2) {
+			Node node = head.next;
+			for (int i=0; i<index; i++) {
+				node = node.next;
+			}
+			return node;
+		}
+		Node node = tail.prev;
+		for (int i=size-1; i>index; i--) {
+			node = node.prev;
 		}
 		return node;
 	}
 
 	@Override
 	public int indexOf(Object target) {
-		//TODO: FILL THIS IN!
-		Node node = head;
-		for (int i = 0; i < size; i++) {
-			if(equals(node.data/*get(i)*/, target)) {
+		int i = 0;
+		for (Node node=head.next; node != tail; node = node.next) {
+			if (equals(target, node.data)) {
 				return i;
 			}
-			node = node.next;
+			i++;
 		}
-
 		return -1;
 	}
 
@@ -184,57 +230,153 @@ public class MyLinkedList<E> implements List<E> {
 
 	@Override
 	public Iterator<E> iterator() {
-		E[] array = (E[]) toArray();
-		return Arrays.asList(array).iterator();
+		return new MyListIterator(0);
 	}
 
 	@Override
 	public int lastIndexOf(Object target) {
-		Node node = head;
-		int index = -1;
-		for (int i=0; i<size; i++) {
+		int i = size - 1;
+		for (Node node=tail.prev; node != head; node = node.prev) {
 			if (equals(target, node.data)) {
-				index = i;
+				return i;
 			}
-			node = node.next;
+			i--;
 		}
-		return index;
+		return -1;
 	}
 
 	@Override
 	public ListIterator<E> listIterator() {
-		return null;
+		return new MyListIterator(0);
 	}
 
 	@Override
 	public ListIterator<E> listIterator(int index) {
-		return null;
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new MyListIterator(index);
+	}
+
+	/**
+	 * Walks the nodes in place, without copying them into an array.
+	 *
+	 * If the list is changed other than through this iterator, the next
+	 * call fails with ConcurrentModificationException.
+	 *
+	 */
+	private class MyListIterator implements ListIterator<E> {
+		private Node next;           // node that next() returns; the tail sentinel at the end
+		private int nextIndex;
+		private Node lastReturned = null;
+		private int expectedModCount = modCount;
+
+		public MyListIterator(int index) {
+			next = index == size ? tail : getNode(index);
+			nextIndex = index;
+		}
+
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < size;
+		}
+
+		@Override
+		public E next() {
+			checkForComodification();
+			if (nextIndex >= size) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = next;
+			next = next.next;
+			nextIndex++;
+			return lastReturned.data;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return nextIndex > 0;
+		}
+
+		@Override
+		public E previous() {
+			checkForComodification();
+			if (nextIndex <= 0) {
+				throw new NoSuchElementException();
+			}
+			next = next.prev;
+			lastReturned = next;
+			nextIndex--;
+			return lastReturned.data;
+		}
+
+		@Override
+		public int nextIndex() {
+			return nextIndex;
+		}
+
+		@Override
+		public int previousIndex() {
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			if (next == lastReturned) {
+				// after previous()
+				next = next.next;
+			} else {
+				// after next()
+				nextIndex--;
+			}
+			unlink(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(E element) {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			lastReturned.data = element;
+		}
+
+		@Override
+		public void add(E element) {
+			checkForComodification();
+			linkBefore(element, next);
+			nextIndex++;
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
 	}
 
 	@Override
 	public boolean remove(Object obj) {
-		int index = indexOf(obj);
-		if (index == -1) {
-			return false;
+		for (Node node=head.next; node != tail; node = node.next) {
+			if (equals(obj, node.data)) {
+				unlink(node);
+				return true;
+			}
 		}
-		remove(index);
-		return true;
+		return false;
 	}
 
 	@Override
 	public E remove(int index) {
-		//TODO: FILL THIS IN!
-		E element;
-		if(index == 0) {
-			element = get(index);
-			head = head.next;
-		} else {
-			Node node = getNode(index-1);
-			element = node.next.data;
-			node.next = node.next.next;
-		}
-		size--;
-		return element;
+		return unlink(getNode(index));
 	}
 
 	@Override
@@ -272,7 +414,7 @@ public class MyLinkedList<E> implements List<E> {
 		// TODO: classify this and improve it.
 		int i = 0;
 		MyLinkedList<E> list = new MyLinkedList<E>();
-		for (Node node=head; node != null; node = node.next) {
+		for (Node node=head.next; node != tail; node = node.next) {
 			if (i >= fromIndex && i <= toIndex) {
 				list.add(node.data);
 			}
@@ -285,7 +427,7 @@ public class MyLinkedList<E> implements List<E> {
 	public Object[] toArray() {
 		Object[] array = new Object[size];
 		int i = 0;
-		for (Node node=head; node != null; node = node.next) {
+		for (Node node=head.next; node != tail; node = node.next) {
 			// System.out.println(node);
 			array[i] = node.data;
 			i++;
@@ -297,4 +439,152 @@ public class MyLinkedList<E> implements List<E> {
 	public <T> T[] toArray(T[] a) {
 		throw new UnsupportedOperationException();
 	}
+
+	/*
+	 * Deque methods.  The "first" end is index 0.
+	 */
+
+	@Override
+	public void addFirst(E element) {
+		linkBefore(element, head.next);
+	}
+
+	@Override
+	public void addLast(E element) {
+		linkBefore(element, tail);
+	}
+
+	@Override
+	public boolean offerFirst(E element) {
+		addFirst(element);
+		return true;
+	}
+
+	@Override
+	public boolean offerLast(E element) {
+		addLast(element);
+		return true;
+	}
+
+	@Override
+	public E removeFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return unlink(head.next);
+	}
+
+	@Override
+	public E removeLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return unlink(tail.prev);
+	}
+
+	@Override
+	public E pollFirst() {
+		return size == 0 ? null : unlink(head.next);
+	}
+
+	@Override
+	public E pollLast() {
+		return size == 0 ? null : unlink(tail.prev);
+	}
+
+	@Override
+	public E getFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return head.next.data;
+	}
+
+	@Override
+	public E getLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return tail.prev.data;
+	}
+
+	@Override
+	public E peekFirst() {
+		return size == 0 ? null : head.next.data;
+	}
+
+	@Override
+	public E peekLast() {
+		return size == 0 ? null : tail.prev.data;
+	}
+
+	@Override
+	public boolean removeFirstOccurrence(Object obj) {
+		return remove(obj);
+	}
+
+	@Override
+	public boolean removeLastOccurrence(Object obj) {
+		for (Node node=tail.prev; node != head; node = node.prev) {
+			if (equals(obj, node.data)) {
+				unlink(node);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean offer(E element) {
+		return offerLast(element);
+	}
+
+	@Override
+	public E remove() {
+		return removeFirst();
+	}
+
+	@Override
+	public E poll() {
+		return pollFirst();
+	}
+
+	@Override
+	public E element() {
+		return getFirst();
+	}
+
+	@Override
+	public E peek() {
+		return peekFirst();
+	}
+
+	@Override
+	public void push(E element) {
+		addFirst(element);
+	}
+
+	@Override
+	public E pop() {
+		return removeFirst();
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		final ListIterator<E> iter = new MyListIterator(size);
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return iter.hasPrevious();
+			}
+			@Override
+			public E next() {
+				return iter.previous();
+			}
+			@Override
+			public void remove() {
+				iter.remove();
+			}
+		};
+	}
 }
@@ -3,10 +3,16 @@
  */
 package com.allendowney.thinkdast;
 
-import java.util.ArrayList;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.junit.Before;
+import org.junit.Test;
 
 
 /**
@@ -28,4 +34,69 @@ public class MyLinkedListTest extends MyArrayListTest {
 		mylist = new MyLinkedList<Integer>();
 		mylist.addAll(list);
 	}
+
+	/**
+	 * Test method for {@link MyLinkedList#get(int)} near the tail.
+	 */
+	@Test
+	public void testGetFromTail() {
+		for (int i = 4; i < 20; i++) {
+			mylist.add(i);
+		}
+		assertThat(mylist.get(17), is(18));
+		assertThat(mylist.get(2), is(3));
+		assertThat(mylist.lastIndexOf(19), is(18));
+	}
+
+	/**
+	 * Test method for the Deque methods of {@link MyLinkedList}.
+	 */
+	@Test
+	public void testDeque() {
+		MyLinkedList<Integer> deque = (MyLinkedList<Integer>) mylist;
+		deque.addFirst(0);
+		deque.addLast(4);
+		assertThat(deque.size(), is(5));
+		assertThat(deque.peekFirst(), is(0));
+		assertThat(deque.peekLast(), is(4));
+
+		assertThat(deque.removeFirst(), is(0));
+		assertThat(deque.removeLast(), is(4));
+		assertThat(deque.pop(), is(1));
+		deque.push(5);
+		assertThat(deque.poll(), is(5));
+		assertThat(deque.pollLast(), is(3));
+		assertThat(deque.pollLast(), is(2));
+		assertThat(deque.pollLast(), nullValue());
+		assertThat(deque.peek(), nullValue());
+		assertThat(deque.isEmpty(), is(true));
+
+		try {
+			deque.removeLast();
+			fail();
+		} catch (NoSuchElementException e) {} // good
+
+		// still usable as a List after being emptied
+		deque.offer(7);
+		deque.add(0, 6);
+		assertThat(deque.get(0), is(6));
+		assertThat(deque.get(1), is(7));
+	}
+
+	/**
+	 * Test method for {@link MyLinkedList#descendingIterator()}.
+	 */
+	@Test
+	public void testDescendingIterator() {
+		MyLinkedList<Integer> deque = (MyLinkedList<Integer>) mylist;
+		Iterator<Integer> iter = deque.descendingIterator();
+		assertThat(iter.next(), is(3));
+		assertThat(iter.next(), is(2));
+		iter.remove();
+		assertThat(iter.next(), is(1));
+		assertThat(iter.hasNext(), is(false));
+		assertThat(deque.size(), is(2));
+		assertThat(deque.removeLastOccurrence(3), is(true));
+		assertThat(deque.getLast(), is(1));
+	}
 }
@@ -0,0 +1,301 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of a HashMap using open addressing.
+ *
+ * Keys and values are stored in two parallel arrays whose length is a
+ * power of two.  Collisions are resolved by linear probing, so a lookup
+ * scans consecutive slots instead of following references into a
+ * sub-map, and put() does not allocate an Entry.
+ *
+ * remove() uses backward-shift deletion: the entries after the removed
+ * one are moved back to fill the hole, so there are no tombstones and
+ * probe sequences never get longer because of removals.
+ *
+ * @param <K>
+ * @param <V>
+ *
+ */
+public class MyOpenHashMap<K, V> implements Map<K, V> {
+
+	// maximum fraction of slots in use before we double the arrays
+	protected static final double FACTOR = 0.5;
+
+	// stands in for the null key, since null marks an empty slot
+	private static final Object NULL_KEY = new Object();
+
+	private Object[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int mask;            // keys.length - 1
+	private int shift;           // 32 - log2(keys.length)
+	private int threshold;       // resize when size exceeds this
+
+	/**
+	 * Initialize the map with 16 slots.
+	 */
+	public MyOpenHashMap() {
+		makeTable(16);
+	}
+
+	/**
+	 * Makes empty arrays with `capacity` slots.
+	 *
+	 * @param capacity must be a power of two
+	 */
+	private void makeTable(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		shift = 32 - Integer.numberOfTrailingZeros(capacity);
+		threshold = (int) (capacity * FACTOR);
+	}
+
+	/**
+	 * Maps a key to the slot where its probe sequence starts.
+	 *
+	 * Multiplying by 2^32 / golden ratio and keeping the high bits spreads
+	 * hash codes that differ only in a few bits, like consecutive integers.
+	 *
+	 * @param key a key that has been masked with maskNull
+	 * @return
+	 */
+	private int indexFor(Object key) {
+		return (key.hashCode() * 0x9E3779B9) >>> shift;
+	}
+
+	private static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> K unmaskNull(Object key) {
+		return key == NULL_KEY ? null : (K) key;
+	}
+
+	/**
+	 * Returns the slot that contains `target`, or -1 if there is none.
+	 *
+	 * @param target a key that has been masked with maskNull
+	 * @return
+	 */
+	private int findSlot(Object target) {
+		int i = indexFor(target);
+		while (keys[i] != null) {
+			if (keys[i] == target || keys[i].equals(target)) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	public void clear() {
+		for (int i=0; i<keys.length; i++) {
+			keys[i] = null;
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public boolean containsKey(Object target) {
+		return findSlot(maskNull(target)) != -1;
+	}
+
+	@Override
+	public boolean containsValue(Object target) {
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != null && equals(target, values[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two values, handling null correctly.
+	 *
+	 * @param target
+	 * @param obj
+	 * @return
+	 */
+	private boolean equals(Object target, Object obj) {
+		if (target == null) {
+			return obj == null;
+		}
+		return target.equals(obj);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> set = new HashSet<Map.Entry<K, V>>();
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != null) {
+				set.add(new AbstractMap.SimpleEntry<K, V>(MyOpenHashMap.<K>unmaskNull(keys[i]), valueAt(i)));
+			}
+		}
+		return set;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueAt(int i) {
+		return (V) values[i];
+	}
+
+	@Override
+	public V get(Object key) {
+		int i = findSlot(maskNull(key));
+		if (i == -1) {
+			return null;
+		}
+		return valueAt(i);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Set<K> keySet() {
+		Set<K> set = new HashSet<K>();
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != null) {
+				set.add(MyOpenHashMap.<K>unmaskNull(keys[i]));
+			}
+		}
+		return set;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		Object k = maskNull(key);
+		int i = indexFor(k);
+		while (keys[i] != null) {
+			if (keys[i] == k || keys[i].equals(k)) {
+				V oldValue = valueAt(i);
+				values[i] = value;
+				return oldValue;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = k;
+		values[i] = value;
+		size++;
+
+		if (size > threshold) {
+			rehash();
+		}
+		return null;
+	}
+
+	/**
+	 * Doubles the number of slots and reinserts the existing entries.
+	 */
+	protected void rehash() {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		makeTable(oldKeys.length * 2);
+
+		for (int j=0; j<oldKeys.length; j++) {
+			if (oldKeys[j] != null) {
+				// the keys are distinct, so we only need to find an empty slot
+				int i = indexFor(oldKeys[j]);
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		for (Map.Entry<? extends K, ? extends V> entry: map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		int i = findSlot(maskNull(key));
+		if (i == -1) {
+			return null;
+		}
+		V oldValue = valueAt(i);
+		deleteSlot(i);
+		size--;
+		return oldValue;
+	}
+
+	/**
+	 * Empties slot `hole` and shifts later entries in the same cluster back.
+	 *
+	 * An entry at slot j can move into the hole if the hole lies between
+	 * its home slot and j; otherwise moving it would put it in front of
+	 * the place where lookups start looking for it.
+	 *
+	 * @param hole
+	 */
+	private void deleteSlot(int hole) {
+		int j = hole;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == null) {
+				break;
+			}
+			int home = indexFor(keys[j]);
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Collection<V> values() {
+		List<V> list = new ArrayList<V>(size);
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != null) {
+				list.add(valueAt(i));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Map<String, Integer> map = new MyOpenHashMap<String, Integer>();
+		for (int i=0; i<10; i++) {
+			map.put(Integer.toString(i), i);
+		}
+		Integer value = map.get("3");
+		System.out.println(value);
+
+		map.remove("3");
+		for (String key: map.keySet()) {
+			System.out.println(key + ", " + map.get(key));
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the MyLinearMap tests against MyOpenHashMap, plus a randomized
+ * test that checks backward-shift deletion against java.util.HashMap.
+ *
+ */
+public class MyOpenHashMapTest extends MyLinearMapTest {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new MyOpenHashMap<String, Integer>();
+		map.put("One", 1);
+		map.put("Two", 2);
+		map.put("Three", 3);
+		map.put(null, 0);
+	}
+
+	/**
+	 * Test method for {@link MyOpenHashMap#remove(java.lang.Object)}.
+	 */
+	@Test
+	public void testRandomPutRemove() {
+		Map<Integer, Integer> mine = new MyOpenHashMap<Integer, Integer>();
+		Map<Integer, Integer> theirs = new HashMap<Integer, Integer>();
+		Random random = new Random(17);
+
+		for (int i=0; i<20000; i++) {
+			// a small key range makes for long clusters and many removals
+			Integer key = random.nextInt(500);
+			if (random.nextBoolean()) {
+				assertThat(mine.put(key, i), is(theirs.put(key, i)));
+			} else {
+				assertThat(mine.remove(key), is(theirs.remove(key)));
+			}
+			assertThat(mine.size(), is(theirs.size()));
+		}
+		for (int key=0; key<500; key++) {
+			assertThat(mine.get(key), is(theirs.get(key)));
+		}
+		assertThat(mine.keySet(), is(theirs.keySet()));
+		assertThat(mine.entrySet(), is(theirs.entrySet()));
+	}
+}
@@ -8,25 +8,43 @@ import java.util.*;
 /**
  * Implementation of a Map using a binary search tree.
  *
+ * The tree is kept balanced using the AVL rules: at every node, the
+ * heights of the two subtrees differ by at most one.  So the height is
+ * O(log n) and get, put and remove take O(log n) time, even when the keys
+ * arrive in sorted order.
+ *
+ * MyTreeMap is also a NavigableMap.  keySet, values, entrySet, subMap,
+ * headMap, tailMap and descendingMap return views, not copies: their
+ * iterators start with an O(log n) descent to the first key in range and
+ * then visit only the k keys in range, so a range scan is O(log n + k).
+ *
  * @param <K>
  * @param <V>
  *
  */
-public class MyTreeMap<K, V> implements Map<K, V> {
+public class MyTreeMap<K, V> implements NavigableMap<K, V> {
 
 	private int size = 0;
 	private Node root = null;
-	private Set<K> keys = new LinkedHashSet<>();
+
+	// counts changes to the structure of the tree, so iterators can fail fast
+	private int modCount = 0;
+
+	// a view of the whole map; the navigation methods delegate to it
+	private final SubMap all = new SubMap(true, null, false, true, null, false, false);
 
 	/**
 	 * Represents a node in the tree.
 	 *
+	 * Nodes are also the entries returned by the entrySet iterators.
+	 *
 	 */
-	protected class Node {
+	protected class Node implements Map.Entry<K, V> {
 		public K key;
 		public V value;
 		public Node left = null;
 		public Node right = null;
+		public int height = 1;       // height of the subtree rooted here
 
 		/**
 		 * @param key
@@ -38,12 +56,44 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 			this.key = key;
 			this.value = value;
 		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+		@Override
+		public V getValue() {
+			return value;
+		}
+		@Override
+		public V setValue(V newValue) {
+			V oldValue = value;
+			value = newValue;
+			return oldValue;
+		}
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+			return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+		}
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(key) ^ Objects.hashCode(value);
+		}
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
 	}
 
 	@Override
 	public void clear() {
 		size = 0;
 		root = null;
+		modCount++;
 	}
 
 	@Override
@@ -121,7 +171,7 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 
 	@Override
 	public Set<Map.Entry<K, V>> entrySet() {
-		throw new UnsupportedOperationException();
+		return all.entrySet();
 	}
 
 	@Override
@@ -140,153 +190,1040 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 
 	@Override
 	public Set<K> keySet() {
-//		Set<K> set = new LinkedHashSet<K>(keySetHelper(root));
-		// TODO: FILL THIS IN!
-		return keySetHelper(root);
+		return navigableKeySet();
 	}
-	private Set<K> keySetHelper(Node node) {
-	/*  This works properly,
-	 *  See Downey's solution for this method.
-	 *  it has the standard code for in-order traversal.
-	 */
-//	if(node == null) return keys;
-//
-//		 keySetHelper(node.left);
-//		 keys.add(node.key);
-//		 keySetHelper(node.right);
-//
-//		return keys;
 
-		/* Here is an iterative version: */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		// if the key is already there, replacing the value doesn't change the shape
+		Node node = findNode(key);
+		if (node != null) {
+			V oldValue = node.value;
+			node.value = value;
+			return oldValue;
+		}
+		root = putHelper(root, key, value);
+		size++;
+		modCount++;
+		return null;
+	}
+
+	/**
+	 * Adds a new node to the subtree rooted at `node`.
+	 *
+	 * @param node
+	 * @param key must not already be in the tree
+	 * @param value
+	 * @return the root of the rebalanced subtree
+	 */
+	private Node putHelper(Node node, K key, V value) {
+		if (node == null) {
+			return new Node(key, value);
+		}
+		@SuppressWarnings("unchecked")
+		Comparable<? super K> k = (Comparable<? super K>) key;
+		if (k.compareTo(node.key) < 0) {
+			node.left = putHelper(node.left, key, value);
+		} else {
+			node.right = putHelper(node.right, key, value);
+		}
+		return rebalance(node);
+	}
 
-		Deque<Node> stack = new ArrayDeque<>();
-		stack.push(node);
-		Node n = stack.peek();
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		for (Map.Entry<? extends K, ? extends V> entry: map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
 
-		while(!stack.isEmpty()) {
+	@Override
+	public V remove(Object key) {
+		Node node = findNode(key);
+		if (node == null) {
+			return null;
+		}
+		V oldValue = node.value;
+		root = removeHelper(root, node.key);
+		size--;
+		modCount++;
+		return oldValue;
+	}
 
-			if (n != null) {
-				stack.push(n);
-				n = n.left;
+	/**
+	 * Removes the node with the given key from the subtree rooted at `node`.
+	 *
+	 * @param node
+	 * @param key must be in the subtree
+	 * @return the root of the rebalanced subtree
+	 */
+	private Node removeHelper(Node node, K key) {
+		@SuppressWarnings("unchecked")
+		Comparable<? super K> k = (Comparable<? super K>) key;
+		int cmp = k.compareTo(node.key);
+		if (cmp < 0) {
+			node.left = removeHelper(node.left, key);
+		} else if (cmp > 0) {
+			node.right = removeHelper(node.right, key);
+		} else {
+			if (node.left == null) {
+				return node.right;
 			}
-			else {
-				n = stack.pop();
-				keys.add(n.key);
-				n = n.right;
+			if (node.right == null) {
+				return node.left;
 			}
+			// replace this node with its successor, the leftmost node on the right
+			Node successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = removeMin(node.right);
+			successor.left = node.left;
+			node = successor;
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Removes the leftmost node from the subtree rooted at `node`.
+	 *
+	 * @param node
+	 * @return the root of the rebalanced subtree
+	 */
+	private Node removeMin(Node node) {
+		if (node.left == null) {
+			return node.right;
 		}
+		node.left = removeMin(node.left);
+		return rebalance(node);
+	}
 
-		return keys;
+	/**
+	 * Returns the height of a subtree, which is 0 for an empty one.
+	 *
+	 * @param node
+	 * @return
+	 */
+	private int height(Node node) {
+		return node == null ? 0 : node.height;
 	}
 
-	@Override
-	public V put(K key, V value) {
-		if (key == null) {
-			throw new NullPointerException();
+	/**
+	 * Recomputes the height of `node` from the heights of its children.
+	 *
+	 * @param node
+	 */
+	private void updateHeight(Node node) {
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+	}
+
+	/**
+	 * Restores the AVL property at `node`, assuming its subtrees have it.
+	 *
+	 * @param node
+	 * @return the root of the rebalanced subtree
+	 */
+	private Node rebalance(Node node) {
+		updateHeight(node);
+		int balance = height(node.left) - height(node.right);
+		if (balance > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
 		}
-		if (root == null) {
-			root = new Node(key, value);
-			size++;
-			return null;
+		if (balance < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
 		}
-		return putHelper(root, key, value);
+		return node;
 	}
 
-	private V putHelper(Node node, K key, V value) {
-		// TODO: FILL THIS IN!
-		@SuppressWarnings("unchecked")
-		Comparable<? super K> k = (Comparable<? super K>) key;
-		V oldValue = node.value;
-		Deque<Node> dq= new ArrayDeque<>();
-		dq.push(root);
-		Node n = null;
+	/**
+	 * Makes the left child of `node` the root of the subtree.
+	 *
+	 * @param node
+	 * @return the new root
+	 */
+	private Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		updateHeight(node);
+		updateHeight(left);
+		return left;
+	}
+
+	/**
+	 * Makes the right child of `node` the root of the subtree.
+	 *
+	 * @param node
+	 * @return the new root
+	 */
+	private Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		updateHeight(node);
+		updateHeight(right);
+		return right;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
 
-		while(!dq.isEmpty()) {
-			n = dq.pop();
-			int cmp = k.compareTo(n.key);
-			oldValue = n.value;
+	@Override
+	public Collection<V> values() {
+		return all.values();
+	}
 
+	/**
+	 * Compares two keys using their natural ordering.
+	 *
+	 * @param key1
+	 * @param key2
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private int compare(Object key1, Object key2) {
+		return ((Comparable<? super K>) key1).compareTo((K) key2);
+	}
+
+	/**
+	 * Returns the node with the least key greater than or equal to `key`
+	 * (or strictly greater, if `inclusive` is false), or null if there is none.
+	 *
+	 * @param key
+	 * @param inclusive
+	 * @return
+	 */
+	private Node ceilingNode(Object key, boolean inclusive) {
+		Node best = null;
+		Node node = root;
+		while (node != null) {
+			int cmp = compare(key, node.key);
+			if (cmp == 0 && inclusive) {
+				return node;
+			}
 			if (cmp < 0) {
-				if (n.left == null) {
-					n.left = new Node(key,value);
-					size++;
-					return null;
-				}
-				else {
-					dq.push(n.left);
-					oldValue = n.value;
-				}
+				best = node;
+				node = node.left;
+			} else {
+				node = node.right;
 			}
-			else if (cmp > 0){
-				if (n.right == null) {
-					n.right = new Node(key, value);
-					size++;
-					return null;
-				} else {
-					dq.push(n.right);
-					oldValue = n.value;
-				}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the node with the greatest key less than or equal to `key`
+	 * (or strictly less, if `inclusive` is false), or null if there is none.
+	 *
+	 * @param key
+	 * @param inclusive
+	 * @return
+	 */
+	private Node floorNode(Object key, boolean inclusive) {
+		Node best = null;
+		Node node = root;
+		while (node != null) {
+			int cmp = compare(key, node.key);
+			if (cmp == 0 && inclusive) {
+				return node;
+			}
+			if (cmp > 0) {
+				best = node;
+				node = node.right;
+			} else {
+				node = node.left;
 			}
 		}
-		n.value = value;
-
-//		int cmp = k.compareTo(node.key);
-//
-//		if (cmp == 0) {
-//			node.value = value;
-//		}
-//		else if (cmp < 0) {
-//			if (node.left == null) {
-//				node.left = new Node(key, value);
-//				size++;
-//				return null;
-//			}
-//			putHelper(node.left, key, value);
-//		}
-//		else if (cmp > 0) {
-//			if (node.right == null) {
-//				node.right = new Node(key, value);
-//				size++;
-//				return null;
-//			}
-//			putHelper(node.right, key, value);
-//		}
-//		oldValue = n.value;
+		return best;
+	}
 
-		return oldValue;
+	private Node firstNode() {
+		Node node = root;
+		while (node != null && node.left != null) {
+			node = node.left;
+		}
+		return node;
 	}
 
-	@Override
-	public void putAll(Map<? extends K, ? extends V> map) {
-		for (Map.Entry<? extends K, ? extends V> entry: map.entrySet()) {
-			put(entry.getKey(), entry.getValue());
+	private Node lastNode() {
+		Node node = root;
+		while (node != null && node.right != null) {
+			node = node.right;
 		}
+		return node;
+	}
+
+	/**
+	 * Returns an immutable copy of an entry, or null.
+	 *
+	 * NavigableMap says the entries returned by firstEntry, floorEntry, etc.
+	 * are snapshots that don't support setValue.
+	 *
+	 * @param node
+	 * @return
+	 */
+	private Map.Entry<K, V> snapshot(Node node) {
+		return node == null ? null : new AbstractMap.SimpleImmutableEntry<K, V>(node.key, node.value);
+	}
+
+	private K keyOrNull(Node node) {
+		return node == null ? null : node.key;
 	}
 
 	@Override
-	public V remove(Object key) {
-		// OPTIONAL TODO: FILL THIS IN!
-		throw new UnsupportedOperationException();
+	public Comparator<? super K> comparator() {
+		return null;
 	}
 
 	@Override
-	public int size() {
-		return size;
+	public K firstKey() {
+		return all.firstKey();
 	}
 
 	@Override
-	public Collection<V> values() {
-		Set<V> set = new HashSet<V>();
-		Deque<Node> stack = new LinkedList<Node>();
-		stack.push(root);
-		while (!stack.isEmpty()) {
+	public K lastKey() {
+		return all.lastKey();
+	}
+
+	@Override
+	public Map.Entry<K, V> lowerEntry(K key) {
+		return all.lowerEntry(key);
+	}
+
+	@Override
+	public K lowerKey(K key) {
+		return all.lowerKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> floorEntry(K key) {
+		return all.floorEntry(key);
+	}
+
+	@Override
+	public K floorKey(K key) {
+		return all.floorKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> ceilingEntry(K key) {
+		return all.ceilingEntry(key);
+	}
+
+	@Override
+	public K ceilingKey(K key) {
+		return all.ceilingKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> higherEntry(K key) {
+		return all.higherEntry(key);
+	}
+
+	@Override
+	public K higherKey(K key) {
+		return all.higherKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> firstEntry() {
+		return all.firstEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> lastEntry() {
+		return all.lastEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> pollFirstEntry() {
+		return all.pollFirstEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> pollLastEntry() {
+		return all.pollLastEntry();
+	}
+
+	@Override
+	public NavigableMap<K, V> descendingMap() {
+		return all.descendingMap();
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet() {
+		return all.navigableKeySet();
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet() {
+		return all.descendingKeySet();
+	}
+
+	@Override
+	public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return all.subMap(fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	@Override
+	public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+		return all.headMap(toKey, inclusive);
+	}
+
+	@Override
+	public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+		return all.tailMap(fromKey, inclusive);
+	}
+
+	@Override
+	public SortedMap<K, V> subMap(K fromKey, K toKey) {
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	@Override
+	public SortedMap<K, V> headMap(K toKey) {
+		return headMap(toKey, false);
+	}
+
+	@Override
+	public SortedMap<K, V> tailMap(K fromKey) {
+		return tailMap(fromKey, true);
+	}
+
+	/**
+	 * A view of the keys in a range, in ascending or descending order.
+	 *
+	 * The whole map is the view with no bounds.  Lookups and updates go
+	 * straight to the tree; a key outside the range is treated as absent.
+	 *
+	 */
+	private class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+		// if fromStart is true there is no lower bound and lo is ignored;
+		// likewise toEnd and hi
+		private final boolean fromStart, toEnd;
+		private final K lo, hi;
+		private final boolean loInclusive, hiInclusive;
+
+		// true if this view goes from the highest key to the lowest
+		private final boolean descending;
+
+		SubMap(boolean fromStart, K lo, boolean loInclusive,
+			   boolean toEnd, K hi, boolean hiInclusive, boolean descending) {
+			if (!fromStart && !toEnd && compare(lo, hi) > 0) {
+				throw new IllegalArgumentException("fromKey > toKey");
+			}
+			this.fromStart = fromStart;
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.toEnd = toEnd;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+			this.descending = descending;
+		}
+
+		private boolean tooLow(Object key) {
+			if (fromStart) {
+				return false;
+			}
+			int cmp = compare(key, lo);
+			return cmp < 0 || (cmp == 0 && !loInclusive);
+		}
+
+		private boolean tooHigh(Object key) {
+			if (toEnd) {
+				return false;
+			}
+			int cmp = compare(key, hi);
+			return cmp > 0 || (cmp == 0 && !hiInclusive);
+		}
+
+		private boolean inRange(Object key) {
+			return !tooLow(key) && !tooHigh(key);
+		}
+
+		/**
+		 * Checks whether `key` can be a bound of a view inside this one.
+		 *
+		 * An exclusive bound may equal one of our exclusive bounds.
+		 *
+		 * @param key
+		 * @param inclusive
+		 * @return
+		 */
+		private boolean inRange(Object key, boolean inclusive) {
+			if (inclusive) {
+				return inRange(key);
+			}
+			return (fromStart || compare(key, lo) >= 0) && (toEnd || compare(key, hi) <= 0);
+		}
+
+		/*
+		 * The abs methods find nodes in ascending key order, ignoring
+		 * `descending`, and return null if the node is out of range.
+		 */
+		private Node absLowest() {
+			Node node = fromStart ? firstNode() : ceilingNode(lo, loInclusive);
+			return (node == null || tooHigh(node.key)) ? null : node;
+		}
+
+		private Node absHighest() {
+			Node node = toEnd ? lastNode() : floorNode(hi, hiInclusive);
+			return (node == null || tooLow(node.key)) ? null : node;
+		}
+
+		private Node absCeiling(Object key, boolean inclusive) {
+			if (tooLow(key)) {
+				return absLowest();
+			}
+			Node node = ceilingNode(key, inclusive);
+			return (node == null || tooHigh(node.key)) ? null : node;
+		}
+
+		private Node absFloor(Object key, boolean inclusive) {
+			if (tooHigh(key)) {
+				return absHighest();
+			}
+			Node node = floorNode(key, inclusive);
+			return (node == null || tooLow(node.key)) ? null : node;
+		}
+
+		/*
+		 * These find nodes in the order of this view.
+		 */
+		private Node first() {
+			return descending ? absHighest() : absLowest();
+		}
+
+		private Node last() {
+			return descending ? absLowest() : absHighest();
+		}
+
+		private Node ceiling(Object key, boolean inclusive) {
+			return descending ? absFloor(key, inclusive) : absCeiling(key, inclusive);
+		}
+
+		private Node floor(Object key, boolean inclusive) {
+			return descending ? absCeiling(key, inclusive) : absFloor(key, inclusive);
+		}
+
+		private boolean isWholeMap() {
+			return fromStart && toEnd;
+		}
+
+		@Override
+		public int size() {
+			if (isWholeMap()) {
+				return MyTreeMap.this.size();
+			}
+			int count = 0;
+			for (NodeIterator iter = new NodeIterator(this); iter.hasNext(); iter.nextNode()) {
+				count++;
+			}
+			return count;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return first() == null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return inRange(key) && MyTreeMap.this.containsKey(key);
+		}
+
+		@Override
+		public V get(Object key) {
+			return inRange(key) ? MyTreeMap.this.get(key) : null;
+		}
+
+		@Override
+		public V put(K key, V value) {
+			if (!inRange(key)) {
+				throw new IllegalArgumentException("key out of range");
+			}
+			return MyTreeMap.this.put(key, value);
+		}
+
+		@Override
+		public V remove(Object key) {
+			return inRange(key) ? MyTreeMap.this.remove(key) : null;
+		}
+
+		@Override
+		public void clear() {
+			if (isWholeMap()) {
+				MyTreeMap.this.clear();
+			} else {
+				super.clear();
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new EntrySet(this);
+		}
+
+		@Override
+		public Set<K> keySet() {
+			return navigableKeySet();
+		}
+
+		@Override
+		public Comparator<? super K> comparator() {
+			return descending ? Collections.<K>reverseOrder() : null;
+		}
+
+		@Override
+		public K firstKey() {
+			Node node = first();
+			if (node == null) {
+				throw new NoSuchElementException();
+			}
+			return node.key;
+		}
+
+		@Override
+		public K lastKey() {
+			Node node = last();
+			if (node == null) {
+				throw new NoSuchElementException();
+			}
+			return node.key;
+		}
+
+		@Override
+		public Map.Entry<K, V> lowerEntry(K key) {
+			return snapshot(floor(key, false));
+		}
+
+		@Override
+		public K lowerKey(K key) {
+			return keyOrNull(floor(key, false));
+		}
+
+		@Override
+		public Map.Entry<K, V> floorEntry(K key) {
+			return snapshot(floor(key, true));
+		}
+
+		@Override
+		public K floorKey(K key) {
+			return keyOrNull(floor(key, true));
+		}
+
+		@Override
+		public Map.Entry<K, V> ceilingEntry(K key) {
+			return snapshot(ceiling(key, true));
+		}
+
+		@Override
+		public K ceilingKey(K key) {
+			return keyOrNull(ceiling(key, true));
+		}
+
+		@Override
+		public Map.Entry<K, V> higherEntry(K key) {
+			return snapshot(ceiling(key, false));
+		}
+
+		@Override
+		public K higherKey(K key) {
+			return keyOrNull(ceiling(key, false));
+		}
+
+		@Override
+		public Map.Entry<K, V> firstEntry() {
+			return snapshot(first());
+		}
+
+		@Override
+		public Map.Entry<K, V> lastEntry() {
+			return snapshot(last());
+		}
+
+		@Override
+		public Map.Entry<K, V> pollFirstEntry() {
+			Map.Entry<K, V> entry = snapshot(first());
+			if (entry != null) {
+				MyTreeMap.this.remove(entry.getKey());
+			}
+			return entry;
+		}
+
+		@Override
+		public Map.Entry<K, V> pollLastEntry() {
+			Map.Entry<K, V> entry = snapshot(last());
+			if (entry != null) {
+				MyTreeMap.this.remove(entry.getKey());
+			}
+			return entry;
+		}
+
+		@Override
+		public SubMap descendingMap() {
+			return new SubMap(fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+		}
+
+		@Override
+		public NavigableSet<K> navigableKeySet() {
+			return new KeySet(this);
+		}
+
+		@Override
+		public NavigableSet<K> descendingKeySet() {
+			return new KeySet(descendingMap());
+		}
+
+		@Override
+		public SubMap subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			if (!inRange(fromKey, fromInclusive) || !inRange(toKey, toInclusive)) {
+				throw new IllegalArgumentException("key out of range");
+			}
+			if (descending) {
+				return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+			}
+			return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+		}
+
+		@Override
+		public SubMap headMap(K toKey, boolean inclusive) {
+			if (!inRange(toKey, inclusive)) {
+				throw new IllegalArgumentException("key out of range");
+			}
+			if (descending) {
+				return new SubMap(false, toKey, inclusive, toEnd, hi, hiInclusive, true);
+			}
+			return new SubMap(fromStart, lo, loInclusive, false, toKey, inclusive, false);
+		}
+
+		@Override
+		public SubMap tailMap(K fromKey, boolean inclusive) {
+			if (!inRange(fromKey, inclusive)) {
+				throw new IllegalArgumentException("key out of range");
+			}
+			if (descending) {
+				return new SubMap(fromStart, lo, loInclusive, false, fromKey, inclusive, true);
+			}
+			return new SubMap(false, fromKey, inclusive, toEnd, hi, hiInclusive, false);
+		}
+
+		@Override
+		public SortedMap<K, V> subMap(K fromKey, K toKey) {
+			return subMap(fromKey, true, toKey, false);
+		}
+
+		@Override
+		public SortedMap<K, V> headMap(K toKey) {
+			return headMap(toKey, false);
+		}
+
+		@Override
+		public SortedMap<K, V> tailMap(K fromKey) {
+			return tailMap(fromKey, true);
+		}
+	}
+
+	/**
+	 * Iterates through the nodes of a SubMap without copying them.
+	 *
+	 * The stack holds the nodes on the path from the root whose keys are
+	 * still to come; it never holds more than height() nodes.
+	 *
+	 */
+	private class NodeIterator {
+		private final SubMap range;
+		private final Deque<Node> stack = new ArrayDeque<Node>();
+		private Node lastReturned = null;
+		private int expectedModCount = modCount;
+
+		NodeIterator(SubMap range) {
+			this.range = range;
+			descend(null);
+		}
+
+		/**
+		 * Fills the stack with the path to the first node in range that
+		 * comes after `after` in iteration order, or the first node in
+		 * range if `after` is null.
+		 *
+		 * @param after
+		 */
+		private void descend(Object after) {
+			stack.clear();
+			Node node = root;
+			while (node != null) {
+				boolean skip;
+				if (range.descending) {
+					skip = range.tooHigh(node.key) || (after != null && compare(node.key, after) >= 0);
+				} else {
+					skip = range.tooLow(node.key) || (after != null && compare(node.key, after) <= 0);
+				}
+				if (skip) {
+					node = range.descending ? node.left : node.right;
+				} else {
+					stack.push(node);
+					node = range.descending ? node.right : node.left;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			if (stack.isEmpty()) {
+				return false;
+			}
+			Node next = stack.peek();
+			return range.descending ? !range.tooLow(next.key) : !range.tooHigh(next.key);
+		}
+
+		public Node nextNode() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
 			Node node = stack.pop();
-			if (node == null) continue;
-			set.add(node.value);
-			stack.push(node.left);
-			stack.push(node.right);
+			Node child = range.descending ? node.left : node.right;
+			while (child != null) {
+				stack.push(child);
+				child = range.descending ? child.right : child.left;
+			}
+			lastReturned = node;
+			return node;
+		}
+
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			// removing rotates the tree, so find our place again
+			MyTreeMap.this.remove(lastReturned.key);
+			expectedModCount = modCount;
+			descend(lastReturned.key);
+			lastReturned = null;
+		}
+	}
+
+	private class EntryIterator extends NodeIterator implements Iterator<Map.Entry<K, V>> {
+		EntryIterator(SubMap range) {
+			super(range);
+		}
+		@Override
+		public Map.Entry<K, V> next() {
+			return nextNode();
+		}
+	}
+
+	private class KeyIterator extends NodeIterator implements Iterator<K> {
+		KeyIterator(SubMap range) {
+			super(range);
+		}
+		@Override
+		public K next() {
+			return nextNode().key;
+		}
+	}
+
+	/**
+	 * The entries of a SubMap.
+	 *
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		private final SubMap map;
+
+		EntrySet(SubMap map) {
+			this.map = map;
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator(map);
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return map.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+			Object key = entry.getKey();
+			return key != null && map.containsKey(key)
+					&& Objects.equals(map.get(key), entry.getValue());
+		}
+
+		@Override
+		public boolean remove(Object obj) {
+			if (!contains(obj)) {
+				return false;
+			}
+			map.remove(((Map.Entry<?, ?>) obj).getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			map.clear();
+		}
+	}
+
+	/**
+	 * The keys of a SubMap, as a NavigableSet.
+	 *
+	 */
+	private class KeySet extends AbstractSet<K> implements NavigableSet<K> {
+		private final SubMap map;
+
+		KeySet(SubMap map) {
+			this.map = map;
+		}
+
+		@Override
+		public Iterator<K> iterator() {
+			return new KeyIterator(map);
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return map.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object obj) {
+			return map.containsKey(obj);
+		}
+
+		@Override
+		public boolean remove(Object obj) {
+			if (!map.containsKey(obj)) {
+				return false;
+			}
+			map.remove(obj);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			map.clear();
+		}
+
+		@Override
+		public Comparator<? super K> comparator() {
+			return map.comparator();
+		}
+
+		@Override
+		public K first() {
+			return map.firstKey();
+		}
+
+		@Override
+		public K last() {
+			return map.lastKey();
+		}
+
+		@Override
+		public K lower(K key) {
+			return map.lowerKey(key);
+		}
+
+		@Override
+		public K floor(K key) {
+			return map.floorKey(key);
+		}
+
+		@Override
+		public K ceiling(K key) {
+			return map.ceilingKey(key);
+		}
+
+		@Override
+		public K higher(K key) {
+			return map.higherKey(key);
+		}
+
+		@Override
+		public K pollFirst() {
+			return keyOrNull(map.pollFirstEntry());
+		}
+
+		@Override
+		public K pollLast() {
+			return keyOrNull(map.pollLastEntry());
+		}
+
+		private K keyOrNull(Map.Entry<K, V> entry) {
+			return entry == null ? null : entry.getKey();
+		}
+
+		@Override
+		public NavigableSet<K> descendingSet() {
+			return new KeySet(map.descendingMap());
+		}
+
+		@Override
+		public Iterator<K> descendingIterator() {
+			return descendingSet().iterator();
+		}
+
+		@Override
+		public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+			return new KeySet(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+		}
+
+		@Override
+		public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+			return new KeySet(map.headMap(toElement, inclusive));
+		}
+
+		@Override
+		public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+			return new KeySet(map.tailMap(fromElement, inclusive));
+		}
+
+		@Override
+		public SortedSet<K> subSet(K fromElement, K toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		@Override
+		public SortedSet<K> headSet(K toElement) {
+			return headSet(toElement, false);
+		}
+
+		@Override
+		public SortedSet<K> tailSet(K fromElement) {
+			return tailSet(fromElement, true);
 		}
-		return set;
 	}
 
 	/**
@@ -328,6 +1265,7 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 	 * Sets the instance variables.
 	 *
 	 * This is only here for testing purposes.  Should not be used otherwise.
+	 * The tree is not rebalanced, but the heights of the nodes are updated.
 	 *
 	 * @param node
 	 * @param size
@@ -335,17 +1273,17 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 	public void setTree(Node node, int size ) {
 		this.root = node;
 		this.size = size;
+		modCount++;
+		heightHelper(root);
 	}
 
 	/**
-	 * Returns the height of the tree.
-	 *
-	 * This is only here for testing purposes.  Should not be used otherwise.
+	 * Returns the height of the tree, which is O(log n).
 	 *
 	 * @return
 	 */
 	public int height() {
-		return heightHelper(root);
+		return height(root);
 	}
 
 	private int heightHelper(Node node) {
@@ -354,6 +1292,7 @@ public class MyTreeMap<K, V> implements Map<K, V> {
 		}
 		int left = heightHelper(node.left);
 		int right = heightHelper(node.right);
-		return Math.max(left, right) + 1;
+		node.height = Math.max(left, right) + 1;
+		return node.height;
 	}
 }
@@ -5,13 +5,21 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.UUID;
 
 public class MyTreeMapExample {
 	
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("timing")) {
+			int n = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+			compareInsertionOrder(n);
+			return;
+		}
+
 		int n = 16384;
 		System.out.println("\nTesting MyTreeMap with random strings");
 		putRandomStrings(n);
@@ -21,13 +29,47 @@ public class MyTreeMapExample {
 
 	}
 
+	/**
+	 * Times putting the same `n` keys into MyTreeMap in sorted and in random order.
+	 *
+	 * An unbalanced tree would take O(n^2) time for the sorted keys.
+	 *
+	 * @param n
+	 */
+	private static void compareInsertionOrder(int n) {
+		List<String> keys = new ArrayList<String>(n);
+		for (int i=0; i<n; i++) {
+			keys.add(String.format("%010d", i));
+		}
+
+		System.out.println("\nTesting MyTreeMap with " + n + " sorted keys");
+		putKeys(keys);
+
+		Collections.shuffle(keys);
+		System.out.println("\nTesting MyTreeMap with " + n + " keys in random order");
+		putKeys(keys);
+	}
+
+	/**
+	 * @param keys
+	 */
+	private static void putKeys(List<String> keys) {
+		MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
+
+		final long startTime = System.currentTimeMillis();
+		for (String key: keys) {
+			map.put(key, 0);
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		printResults(map, elapsed, map.height());
+	}
+
 	/**
 	 * @param map
 	 * @param n 
 	 */
 	private static void putRandomStrings(int n) {
-		// MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
-		TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
 		
 		final long startTime = System.currentTimeMillis();		
 		for (int i=0; i<n; i++) {
@@ -35,8 +77,7 @@ public class MyTreeMapExample {
 			map.put(uuid, 0);
 		}
 		final long elapsed = System.currentTimeMillis() - startTime;
-		//printResults(map, elapsed, map.height());
-		printResults(map, elapsed, -1);
+		printResults(map, elapsed, map.height());
 	}
 	
 	/**
@@ -44,8 +85,7 @@ public class MyTreeMapExample {
 	 * @param n 
 	 */
 	private static void putTimestamps(int n) {
-		//MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
-		TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		MyTreeMap<String, Integer> map = new MyTreeMap<String, Integer>();
 
 		final long startTime = System.currentTimeMillis();		
 		for (int i=0; i<n; i++) {
@@ -53,8 +93,7 @@ public class MyTreeMapExample {
 			map.put(timestamp, 0);
 		}
 		final long elapsed = System.currentTimeMillis() - startTime;
-		//printResults(map, elapsed, map.height());
-		printResults(map, elapsed, -1);
+		printResults(map, elapsed, map.height());
 	}
 	
 	/**
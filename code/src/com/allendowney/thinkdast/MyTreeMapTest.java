@@ -4,14 +4,21 @@
 package com.allendowney.thinkdast;
 
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -117,6 +124,7 @@ public class MyTreeMapTest {
 	public void testKeySet() {
 		Set<String> keySet = map.keySet();
 		assertThat(keySet.size(), is(9));
+		assertThat(map.keySet(), is(keySet));
 		assertThat(keySet.contains("03"), is(true));
 		assertThat(keySet.contains("05"), is(false));
 		
@@ -167,7 +175,161 @@ public class MyTreeMapTest {
 	 */
 	@Test
 	public void testRemove() {
-		// nothing to test, since this method is not implemented
+		// a leaf, a node with one child, and a node with two children
+		assertThat(map.remove("04"), is(4));
+		assertThat(map.remove("14"), is(14));
+		assertThat(map.remove("03"), is(3));
+		assertThat(map.remove("05"), nullValue());
+		assertThat(map.size(), is(6));
+		assertThat(map.get("03"), nullValue());
+		assertThat(map.get("06"), is(6));
+		assertThat(map.get("13"), is(13));
+
+		List<String> list = new ArrayList<String>(map.keySet());
+		assertThat(list, is(Arrays.asList("01", "06", "07", "08", "10", "13")));
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#height()}.
+	 */
+	@Test
+	public void testHeight() {
+		assertThat(map.height(), is(4));
+
+		// sorted keys would make an unbalanced tree into a linked list
+		MyTreeMap<Integer, Integer> tree = new MyTreeMap<Integer, Integer>();
+		int n = 1 << 14;
+		for (int i=0; i<n; i++) {
+			tree.put(i, i);
+		}
+		assertThat(tree.size(), is(n));
+		assertThat(tree.height() <= maxHeight(n), is(true));
+
+		// remove every other key and check that the tree is still balanced
+		for (int i=0; i<n; i+=2) {
+			assertThat(tree.remove(i), is(i));
+		}
+		assertThat(tree.size(), is(n/2));
+		assertThat(tree.height() <= maxHeight(n/2), is(true));
+		assertThat(tree.get(1), is(1));
+		assertThat(tree.get(2), nullValue());
+	}
+
+	/**
+	 * Returns the greatest height an AVL tree with `n` nodes can have.
+	 *
+	 * @param n
+	 * @return
+	 */
+	private static double maxHeight(int n) {
+		return 1.45 * Math.log(n + 2) / Math.log(2);
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#floorKey(Object)} and friends.
+	 */
+	@Test
+	public void testNavigation() {
+		assertThat(map.firstKey(), is("01"));
+		assertThat(map.lastKey(), is("14"));
+		assertThat(map.floorKey("05"), is("04"));
+		assertThat(map.floorKey("06"), is("06"));
+		assertThat(map.lowerKey("06"), is("04"));
+		assertThat(map.ceilingKey("11"), is("13"));
+		assertThat(map.higherKey("13"), is("14"));
+		assertThat(map.higherKey("14"), nullValue());
+		assertThat(map.lowerKey("01"), nullValue());
+		assertThat(map.floorEntry("09").getValue(), is(8));
+
+		assertThat(map.pollFirstEntry().getKey(), is("01"));
+		assertThat(map.pollLastEntry().getKey(), is("14"));
+		assertThat(map.size(), is(7));
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#subMap(Object, boolean, Object, boolean)}.
+	 */
+	@Test
+	public void testSubMap() {
+		NavigableMap<String, Integer> sub = map.subMap("03", true, "10", false);
+		assertThat(new ArrayList<String>(sub.keySet()), is(Arrays.asList("03", "04", "06", "07", "08")));
+		assertThat(sub.size(), is(5));
+		assertThat(sub.containsKey("10"), is(false));
+		assertThat(sub.get("01"), nullValue());
+		assertThat(sub.firstKey(), is("03"));
+		assertThat(sub.lastKey(), is("08"));
+
+		// the view is backed by the map
+		map.put("05", 5);
+		assertThat(sub.size(), is(6));
+		sub.remove("04");
+		assertThat(map.containsKey("04"), is(false));
+
+		try {
+			sub.put("11", 11);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+
+		NavigableMap<String, Integer> desc = sub.descendingMap();
+		assertThat(new ArrayList<String>(desc.keySet()), is(Arrays.asList("08", "07", "06", "05", "03")));
+		assertThat(desc.higherKey("06"), is("05"));
+		assertThat(new ArrayList<String>(desc.headMap("06", true).keySet()), is(Arrays.asList("08", "07", "06")));
+
+		assertThat(new ArrayList<String>(map.headMap("04").keySet()), is(Arrays.asList("01", "03")));
+		assertThat(new ArrayList<String>(map.tailMap("10", false).keySet()), is(Arrays.asList("13", "14")));
+	}
+
+	/**
+	 * Test method for {@link MyTreeMap#entrySet()}.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Map.Entry<String, Integer>> iter = map.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<String, Integer> entry = iter.next();
+			if (entry.getValue() % 2 == 0) {
+				iter.remove();
+			} else {
+				entry.setValue(entry.getValue() * 10);
+			}
+		}
+		assertThat(new ArrayList<Integer>(map.values()), is(Arrays.asList(10, 30, 70, 130)));
+
+		try {
+			Iterator<String> keys = map.keySet().iterator();
+			keys.next();
+			map.put("99", 99);
+			keys.next();
+			fail();
+		} catch (ConcurrentModificationException e) {} // good
+	}
+
+	/**
+	 * Compares range scans with java.util.TreeMap.
+	 */
+	@Test
+	public void testRangesLikeTreeMap() {
+		MyTreeMap<Integer, Integer> mine = new MyTreeMap<Integer, Integer>();
+		TreeMap<Integer, Integer> theirs = new TreeMap<Integer, Integer>();
+		Random random = new Random(17);
+		for (int i=0; i<1000; i++) {
+			int key = random.nextInt(2000);
+			mine.put(key, i);
+			theirs.put(key, i);
+		}
+		for (int i=0; i<200; i++) {
+			int from = random.nextInt(2100) - 50;
+			int to = from + random.nextInt(300);
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+			NavigableMap<Integer, Integer> sub = mine.subMap(from, fromInclusive, to, toInclusive);
+			NavigableMap<Integer, Integer> expected = theirs.subMap(from, fromInclusive, to, toInclusive);
+			assertThat(new ArrayList<Integer>(sub.keySet()), is(new ArrayList<Integer>(expected.keySet())));
+			assertThat(new ArrayList<Integer>(sub.descendingKeySet()),
+					is(new ArrayList<Integer>(expected.descendingKeySet())));
+			assertThat(sub.ceilingKey(from + 10), is(expected.ceilingKey(from + 10)));
+			assertThat(sub.lowerKey(to - 10), is(expected.lowerKey(to - 10)));
+		}
 	}
 
 	/**
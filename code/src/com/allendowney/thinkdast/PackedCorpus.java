@@ -0,0 +1,378 @@
+package com.allendowney.thinkdast;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+
+/**
+ * An offline corpus of pages packed into one file, read through memory
+ * mapping.
+ *
+ * Reading pages one file at a time means opening a stream for every
+ * page.  Here the pages are stored back to back in one file, followed by
+ * an index from title to offset and length.  Opening the corpus maps the
+ * file and loads the index; after that, page(title) returns a read-only
+ * view of the page's bytes in the mapping, without copying or any system
+ * calls.
+ *
+ * The file format, all numbers big-endian:
+ *
+ *     header:  "TDCORPUS", int version, int chunkBits, int count, long indexOffset
+ *     pages:   the bytes of each page
+ *     index:   for each page, int titleLength, UTF-8 title, long offset, int length
+ *
+ * A MappedByteBuffer holds at most 2 GB, so the file is mapped in chunks
+ * of 2^chunkBits bytes.  When packing, a page that would cross a chunk
+ * boundary starts at the next chunk instead, so every page is inside one
+ * mapping.
+ *
+ */
+public class PackedCorpus implements Closeable {
+
+	public static final int VERSION = 1;
+	public static final int DEFAULT_CHUNK_BITS = 30;
+
+	private static final byte[] MAGIC = "TDCORPUS".getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 4 + 8;
+
+	private final FileChannel channel;
+	private final ByteBuffer[] chunks;
+	private final int chunkBits;
+
+	// map from title to {offset, length}
+	private final Map<String, long[]> index;
+
+	/**
+	 * Opens a packed corpus.
+	 *
+	 * @param file
+	 * @throws IOException if the file is not a corpus
+	 */
+	public PackedCorpus(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(header, 0);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException(file + " is not a packed corpus");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException(file + " has version " + version + ", not " + VERSION);
+			}
+			chunkBits = header.getInt();
+			if (chunkBits < 10 || chunkBits > 30) {
+				throw new IOException(file + " has a bad chunk size: " + chunkBits);
+			}
+			int count = header.getInt();
+			long indexOffset = header.getLong();
+			// pack() fills in the offset last, so a partly written file has 0
+			long size = channel.size();
+			if (indexOffset < HEADER_SIZE || indexOffset > size || size - indexOffset > Integer.MAX_VALUE) {
+				throw new IOException(file + " has a bad header; it may be partly written");
+			}
+			// each index entry takes at least 16 bytes
+			if (count < 0 || count > (size - indexOffset) / 16) {
+				throw new IOException(file + " has a bad page count: " + count);
+			}
+
+			// the index is read into the heap, since we look at all of it once
+			ByteBuffer buffer = ByteBuffer.allocate((int) (size - indexOffset));
+			readFully(buffer, indexOffset);
+			index = new HashMap<String, long[]>(count * 2);
+			for (int i=0; i<count; i++) {
+				if (buffer.remaining() < 4) {
+					throw new IOException(file + " has a truncated index");
+				}
+				int titleLength = buffer.getInt();
+				if (titleLength < 0 || buffer.remaining() < titleLength + 12L) {
+					throw new IOException(file + " has a truncated index");
+				}
+				byte[] title = new byte[titleLength];
+				buffer.get(title);
+				long offset = buffer.getLong();
+				int length = buffer.getInt();
+				if (!fits(offset, length, indexOffset)) {
+					throw new IOException(file + " has a page outside the pages section: "
+							+ new String(title, StandardCharsets.UTF_8));
+				}
+				index.put(new String(title, StandardCharsets.UTF_8), new long[] {offset, length});
+			}
+
+			long chunkSize = 1L << chunkBits;
+			int nchunks = (int) ((indexOffset + chunkSize - 1) >>> chunkBits);
+			chunks = new ByteBuffer[nchunks];
+			for (int i=0; i<nchunks; i++) {
+				long start = (long) i << chunkBits;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, indexOffset - start));
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks that a page is between the header and the index, and inside
+	 * one chunk.
+	 */
+	private boolean fits(long offset, int length, long indexOffset) {
+		if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+			return false;
+		}
+		return length == 0 || (offset >>> chunkBits) == ((offset + length - 1) >>> chunkBits);
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("corpus file is truncated");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Finds the bytes of a page.
+	 *
+	 * @param title
+	 * @return a read-only view of the page, or null if there is no such page
+	 */
+	public ByteBuffer page(String title) {
+		long[] entry = index.get(title);
+		if (entry == null) {
+			return null;
+		}
+		if (entry[1] == 0) {
+			// might be at the end of the last chunk, where there is no mapping
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		}
+		long offset = entry[0];
+		int start = (int) (offset & ((1L << chunkBits) - 1));
+		ByteBuffer chunk = chunks[(int) (offset >>> chunkBits)].duplicate();
+		chunk.position(start).limit(start + (int) entry[1]);
+		return chunk.slice();
+	}
+
+	/**
+	 * Parses a page and selects the paragraphs of the content text.
+	 *
+	 * @param title
+	 * @param baseUri used to resolve relative links
+	 * @return the paragraphs
+	 * @throws IOException if there is no such page
+	 */
+	public Elements paragraphs(String title, String baseUri) throws IOException {
+		ByteBuffer page = page(title);
+		if (page == null) {
+			throw new IOException("no page called " + title);
+		}
+		Document doc = Jsoup.parse(new ByteBufferInputStream(page), "UTF-8", baseUri);
+		return WikiFetcher.paragraphs(doc);
+	}
+
+	/**
+	 * @return the titles of the pages
+	 */
+	public Set<String> titles() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+
+	/**
+	 * @return the number of pages
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * The mappings stay valid until they are garbage collected, so
+	 * buffers returned by page() can still be read.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Finds the title in a URL like https://en.wikipedia.org/wiki/Title.
+	 *
+	 * @param url
+	 * @return the decoded last part of the path, or the URL itself if it
+	 *         has no path
+	 */
+	public static String titleOf(String url) {
+		String path;
+		try {
+			path = new URI(url).getPath();
+		} catch (URISyntaxException e) {
+			path = url;
+		}
+		if (path == null) {
+			return url;
+		}
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Packs every file in a directory, using the file names as titles.
+	 *
+	 * @param dir
+	 * @param out
+	 * @return the number of pages packed
+	 * @throws IOException
+	 */
+	public static int pack(File dir, File out) throws IOException {
+		return pack(dir, out, DEFAULT_CHUNK_BITS);
+	}
+
+	/**
+	 * Packs every file in a directory, with chunks of 2^chunkBits bytes.
+	 *
+	 * @param dir
+	 * @param out
+	 * @param chunkBits
+	 * @return the number of pages packed
+	 * @throws IOException
+	 */
+	static int pack(File dir, File out, int chunkBits) throws IOException {
+		if (chunkBits < 10 || chunkBits > 30) {
+			throw new IllegalArgumentException("chunkBits must be between 10 and 30: " + chunkBits);
+		}
+		File[] files = dir.listFiles(File::isFile);
+		if (files == null) {
+			throw new IOException(dir + " is not a directory");
+		}
+		Arrays.sort(files);
+		long chunkSize = 1L << chunkBits;
+		long[] offsets = new long[files.length];
+		int[] lengths = new int[files.length];
+		long indexOffset;
+
+		try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)))) {
+			// the index offset is filled in at the end
+			data.write(MAGIC);
+			data.writeInt(VERSION);
+			data.writeInt(chunkBits);
+			data.writeInt(files.length);
+			data.writeLong(0);
+			long position = HEADER_SIZE;
+
+			for (int i=0; i<files.length; i++) {
+				byte[] page = Files.readAllBytes(files[i].toPath());
+				if (page.length > chunkSize) {
+					throw new IOException(files[i] + " is bigger than a chunk");
+				}
+				// don't let a page cross into the next chunk
+				long end = position + page.length;
+				if (page.length > 0 && (position >>> chunkBits) != ((end - 1) >>> chunkBits)) {
+					long next = ((position >>> chunkBits) + 1) << chunkBits;
+					for (; position < next; position++) {
+						data.write(0);
+					}
+				}
+				offsets[i] = position;
+				lengths[i] = page.length;
+				data.write(page);
+				position += page.length;
+			}
+			indexOffset = position;
+
+			for (int i=0; i<files.length; i++) {
+				byte[] title = files[i].getName().getBytes(StandardCharsets.UTF_8);
+				data.writeInt(title.length);
+				data.write(title);
+				data.writeLong(offsets[i]);
+				data.writeInt(lengths[i]);
+			}
+		}
+
+		// now we know where the index starts
+		try (FileChannel channel = FileChannel.open(out.toPath(), StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(8).putLong(indexOffset);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, HEADER_SIZE - 8 + buffer.position());
+			}
+		}
+		return files.length;
+	}
+
+	/**
+	 * An InputStream that reads a ByteBuffer, so Jsoup can parse a page
+	 * without copying it into an array first.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * Packs a directory of pages.
+	 *
+	 * @param args optional directory and output file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : LocalWiki.DEFAULT_DIR);
+		File out = new File(args.length > 1 ? args[1] : "wiki.corpus");
+		int count = pack(dir, out);
+		System.out.println("Packed " + count + " pages into " + out + " (" + out.length() + " bytes)");
+
+		try (PackedCorpus corpus = new PackedCorpus(out)) {
+			for (String title: corpus.titles()) {
+				System.out.println(title + "\t" + corpus.page(title).remaining());
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.jsoup.select.Elements;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for PackedCorpus.
+ *
+ */
+public class PackedCorpusTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dir = new File(LocalWiki.DEFAULT_DIR);
+	private PackedCorpus corpus;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		File file = folder.newFile("wiki.corpus");
+		assertThat(PackedCorpus.pack(dir, file), is(13));
+		corpus = new PackedCorpus(file);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		corpus.close();
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] array = new byte[buffer.remaining()];
+		buffer.duplicate().get(array);
+		return array;
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#page(String)}.
+	 */
+	@Test
+	public void testPage() throws IOException {
+		assertThat(corpus.size(), is(13));
+		for (File file: dir.listFiles()) {
+			ByteBuffer page = corpus.page(file.getName());
+			assertThat(page.isReadOnly(), is(true));
+			assertThat(bytes(page), is(Files.readAllBytes(file.toPath())));
+		}
+		assertThat(corpus.page("No_such_page"), is(nullValue()));
+		assertThat(corpus.titles().contains("Philosophy"), is(true));
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#paragraphs(String, String)}.
+	 */
+	@Test
+	public void testReadWikipedia() throws IOException {
+		WikiFetcher wf = new WikiFetcher(corpus);
+		String url = "https://en.wikipedia.org/wiki/Java_(programming_language)";
+		Elements paragraphs = wf.readWikipedia(url);
+
+		// same count as WikiCrawlerTest
+		TermCounter counter = new TermCounter(url);
+		counter.processElements(paragraphs);
+		assertThat(counter.get("the"), is(339));
+
+		// links resolve against the URL
+		assertThat(paragraphs.select("a[href]").first().absUrl("href").startsWith("https://en.wikipedia.org/wiki/"), is(true));
+		assertThat(wf.scheduler().requests(), is(0L));
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#titleOf(String)}.
+	 */
+	@Test
+	public void testTitleOf() {
+		assertThat(PackedCorpus.titleOf("https://en.wikipedia.org/wiki/Java_(programming_language)"),
+				is("Java_(programming_language)"));
+		assertThat(PackedCorpus.titleOf("https://en.wikipedia.org/wiki/Java_%28programming_language%29#History"),
+				is("Java_(programming_language)"));
+		assertThat(PackedCorpus.titleOf("Philosophy"), is("Philosophy"));
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#pack(File, File, int)}.
+	 */
+	@Test
+	public void testChunks() throws IOException {
+		// chunks of 512 KB, so pages get moved to the next chunk
+		File file = folder.newFile("small.corpus");
+		PackedCorpus.pack(dir, file, 19);
+		assertThat(file.length() > new File(folder.getRoot(), "wiki.corpus").length(), is(true));
+
+		try (PackedCorpus small = new PackedCorpus(file)) {
+			for (File page: dir.listFiles()) {
+				assertThat(bytes(small.page(page.getName())), is(Files.readAllBytes(page.toPath())));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#PackedCorpus(File)}.
+	 */
+	@Test(expected = IOException.class)
+	public void testNotACorpus() throws IOException {
+		new PackedCorpus(new File(dir, "Philosophy"));
+	}
+
+	/**
+	 * Test method for {@link PackedCorpus#PackedCorpus(File)}.
+	 */
+	@Test
+	public void testDamaged() throws IOException {
+		File good = new File(folder.getRoot(), "wiki.corpus");
+		long indexOffset;
+		try (RandomAccessFile raf = new RandomAccessFile(good, "r")) {
+			raf.seek(20);
+			indexOffset = raf.readLong();
+		}
+
+		// pack() writes the index offset last, so until then it is 0
+		assertThat(damaged(good, 20, longBytes(0), -1), is(true));
+		// an offset past the end of the file
+		assertThat(damaged(good, 20, longBytes(good.length() + 1), -1), is(true));
+		// more pages than the index has room for
+		assertThat(damaged(good, 16, intBytes(Integer.MAX_VALUE), -1), is(true));
+		// the file ends in the middle of the index
+		assertThat(damaged(good, -1, null, good.length() - 3), is(true));
+		// the first page starts past the index
+		assertThat(damaged(good, indexOffset + 4 + "Awareness".length(), longBytes(indexOffset), -1), is(true));
+	}
+
+	/**
+	 * Copies `file`, writes `bytes` at `position` (unless it is -1) and
+	 * cuts it to `length` (unless it is -1).
+	 *
+	 * @return whether opening the copy throws IOException
+	 */
+	private boolean damaged(File file, long position, byte[] bytes, long length) throws IOException {
+		File copy = folder.newFile();
+		Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		try (RandomAccessFile raf = new RandomAccessFile(copy, "rw")) {
+			if (position != -1) {
+				raf.seek(position);
+				raf.write(bytes);
+			}
+			if (length != -1) {
+				raf.setLength(length);
+			}
+		}
+		try {
+			new PackedCorpus(copy).close();
+			return false;
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	private static byte[] longBytes(long value) {
+		return ByteBuffer.allocate(8).putLong(value).array();
+	}
+
+	private static byte[] intBytes(int value) {
+		return ByteBuffer.allocate(4).putInt(value).array();
+	}
+}
@@ -0,0 +1,444 @@
+package com.allendowney.thinkdast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+
+/**
+ * A two-level cache of Wikipedia pages, so pages we have fetched before
+ * don't have to be downloaded and parsed again.
+ *
+ * The first level is in memory: the paragraphs of the most recently
+ * used pages, already parsed, in an LRU map.  The second level is on
+ * disk: for each URL, the HTML compressed with gzip, and a properties
+ * file with the ETag and Last-Modified headers and the time we last
+ * checked with the server.  The file names are the SHA-1 of the
+ * normalized URL.
+ *
+ * Requests go through HttpURLConnection, with USER_AGENT, and pages are
+ * decoded in the charset from the response's Content-Type.
+ *
+ * A page checked within the last maxAge milliseconds is used as is.  An
+ * older page is revalidated with a conditional GET; if the server says
+ * 304 Not Modified, we keep using our copy, and otherwise we replace it.
+ *
+ * Only one miss for each URL runs at a time; other threads that miss
+ * on the same URL wait for its result, so two threads don't fetch the
+ * same page at once, or write its two files from different responses.
+ * Misses on different URLs don't wait for each other.
+ *
+ * The Elements returned are shared by everyone who asks for the same
+ * page, so callers should not modify them.
+ *
+ * Thread-safe.
+ *
+ */
+public class PageCache {
+
+	public static final File DEFAULT_DIR = new File(System.getProperty("java.io.tmpdir"), "thinkdast-pages");
+	public static final int DEFAULT_MEMORY_PAGES = 100;
+	public static final long DEFAULT_MAX_AGE_MILLIS = 60 * 60 * 1000;
+
+	// Wikipedia asks clients to say who they are
+	public static final String USER_AGENT =
+			"ThinkDataStructures/1.0 (+https://github.com/AllenDowney/ThinkDataStructures)";
+
+	/**
+	 * A page in memory.
+	 */
+	private static class Page {
+		final Elements paragraphs;
+		final Properties meta;
+
+		Page(Elements paragraphs, Properties meta) {
+			this.paragraphs = paragraphs;
+			this.meta = meta;
+		}
+	}
+
+	private final File dir;
+	private final long maxAgeMillis;
+	private final PolitenessScheduler scheduler;
+
+	// guarded by itself
+	private final LinkedHashMap<String, Page> memory;
+
+	// the misses in progress, by key
+	private final ConcurrentHashMap<String, CompletableFuture<Elements>> inFlight =
+			new ConcurrentHashMap<String, CompletableFuture<Elements>>();
+
+	private final LongAdder memoryHits = new LongAdder();
+	private final LongAdder diskHits = new LongAdder();
+	private final LongAdder notModified = new LongAdder();
+	private final LongAdder downloads = new LongAdder();
+
+	/**
+	 * Makes a cache in the default directory.
+	 *
+	 * @param scheduler rate limits the requests that go to the network
+	 */
+	public PageCache(PolitenessScheduler scheduler) {
+		this(DEFAULT_DIR, DEFAULT_MEMORY_PAGES, DEFAULT_MAX_AGE_MILLIS, scheduler);
+	}
+
+	/**
+	 * @param dir where to keep the pages; made when the first page is stored
+	 * @param memoryPages how many parsed pages to keep in memory
+	 * @param maxAgeMillis how long to use a page before checking it again
+	 * @param scheduler rate limits the requests that go to the network
+	 */
+	public PageCache(File dir, final int memoryPages, long maxAgeMillis, PolitenessScheduler scheduler) {
+		if (memoryPages < 0) {
+			throw new IllegalArgumentException("memoryPages must not be negative: " + memoryPages);
+		}
+		this.dir = dir;
+		this.maxAgeMillis = maxAgeMillis;
+		this.scheduler = scheduler;
+		this.memory = new LinkedHashMap<String, Page>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+				return size() > memoryPages;
+			}
+		};
+	}
+
+	/**
+	 * Gets the paragraphs of a page, from memory, disk or the network.
+	 *
+	 * @param url
+	 * @return
+	 * @throws IOException
+	 */
+	public Elements get(String url) throws IOException {
+		String key = SeenUrls.normalize(url);
+		Page page = fromMemory(key);
+		if (page != null && isFresh(page.meta)) {
+			memoryHits.increment();
+			return page.paragraphs;
+		}
+
+		// one miss at a time for each key, so the page and its properties
+		// on disk always come from the same response
+		CompletableFuture<Elements> mine = new CompletableFuture<Elements>();
+		CompletableFuture<Elements> theirs = inFlight.putIfAbsent(key, mine);
+		if (theirs != null) {
+			memoryHits.increment();
+			return await(theirs, url);
+		}
+		try {
+			// another thread might have just finished fetching it
+			page = fromMemory(key);
+			Elements paragraphs;
+			if (page != null && isFresh(page.meta)) {
+				memoryHits.increment();
+				paragraphs = page.paragraphs;
+			} else {
+				paragraphs = miss(key, url, page);
+			}
+			mine.complete(paragraphs);
+			return paragraphs;
+		} catch (IOException | RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	/**
+	 * Waits for another thread's miss on the same URL.
+	 */
+	private static Elements await(CompletableFuture<Elements> future, String url) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting for " + url);
+		} catch (ExecutionException e) {
+			throw new IOException("fetching " + url + " failed", e.getCause());
+		}
+	}
+
+	private Page fromMemory(String key) {
+		synchronized (memory) {
+			return memory.get(key);
+		}
+	}
+
+	/**
+	 * Gets a page that isn't fresh in memory, from disk or the network.
+	 *
+	 * @param key the normalized URL
+	 * @param url
+	 * @param page the stale page in memory, or null
+	 */
+	private Elements miss(String key, String url, Page page) throws IOException {
+		String name = fileName(key);
+		File metaFile = new File(dir, name + ".properties");
+		File htmlFile = new File(dir, name + ".html.gz");
+		Properties meta = page != null ? page.meta : readMeta(metaFile, htmlFile);
+		if (meta != null && isFresh(meta)) {
+			diskHits.increment();
+			return remember(key, parse(readGzip(htmlFile), meta, url), meta);
+		}
+
+		// ask the server, with our validators if we have a copy
+		HttpURLConnection conn = open(url, meta);
+		try {
+			int status = conn.getResponseCode();
+			if (status == HttpURLConnection.HTTP_NOT_MODIFIED && meta != null) {
+				notModified.increment();
+				Properties checked = copyMeta(meta);
+				checked.setProperty("checked", Long.toString(System.currentTimeMillis()));
+				writeMeta(metaFile, checked);
+				Elements paragraphs = page != null ? page.paragraphs : parse(readGzip(htmlFile), meta, url);
+				return remember(key, paragraphs, checked);
+			}
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException("HTTP " + status + " fetching " + url);
+			}
+			byte[] html;
+			try (InputStream in = conn.getInputStream()) {
+				html = in.readAllBytes();
+			}
+			downloads.increment();
+
+			Properties fresh = new Properties();
+			fresh.setProperty("url", key);
+			fresh.setProperty("checked", Long.toString(System.currentTimeMillis()));
+			setIfPresent(fresh, "etag", conn.getHeaderField("ETag"));
+			setIfPresent(fresh, "lastModified", conn.getHeaderField("Last-Modified"));
+			setIfPresent(fresh, "charset", charsetOf(conn.getContentType()));
+			// without the old properties, a crash before the new ones are
+			// written leaves a page that is fetched again, not one with
+			// the wrong validators
+			Files.deleteIfExists(metaFile.toPath());
+			writeGzip(htmlFile, html);
+			writeMeta(metaFile, fresh);
+			return remember(key, parse(html, fresh, url), fresh);
+		} finally {
+			conn.disconnect();
+		}
+	}
+
+	/**
+	 * Opens a connection, waiting for the scheduler first.
+	 */
+	private HttpURLConnection open(String url, Properties meta) throws IOException {
+		try {
+			scheduler.acquire(url);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting to fetch " + url);
+		}
+		HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+		conn.setRequestProperty("User-Agent", USER_AGENT);
+		if (meta != null) {
+			if (meta.getProperty("etag") != null) {
+				conn.setRequestProperty("If-None-Match", meta.getProperty("etag"));
+			}
+			if (meta.getProperty("lastModified") != null) {
+				conn.setRequestProperty("If-Modified-Since", meta.getProperty("lastModified"));
+			}
+		}
+		return conn;
+	}
+
+	private boolean isFresh(Properties meta) {
+		long checked = Long.parseLong(meta.getProperty("checked", "0"));
+		return System.currentTimeMillis() - checked < maxAgeMillis;
+	}
+
+	private Elements remember(String key, Elements paragraphs, Properties meta) {
+		synchronized (memory) {
+			memory.put(key, new Page(paragraphs, meta));
+		}
+		return paragraphs;
+	}
+
+	/**
+	 * Parses a page in the charset the server gave, or, if it gave none,
+	 * the one Jsoup detects from the page.
+	 */
+	private static Elements parse(byte[] html, Properties meta, String url) throws IOException {
+		Document doc = Jsoup.parse(new ByteArrayInputStream(html), meta.getProperty("charset"), url);
+		return WikiFetcher.paragraphs(doc);
+	}
+
+	/**
+	 * @param contentType a Content-Type header, like "text/html; charset=UTF-8"
+	 * @return the charset, or null if there is none or Java doesn't know it
+	 */
+	static String charsetOf(String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		for (String param: contentType.split(";")) {
+			param = param.trim();
+			if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+				String charset = param.substring(8).trim().replace("\"", "");
+				try {
+					return Charset.isSupported(charset) ? charset : null;
+				} catch (IllegalCharsetNameException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static void setIfPresent(Properties meta, String name, String value) {
+		if (value != null) {
+			meta.setProperty(name, value);
+		}
+	}
+
+	private static Properties copyMeta(Properties meta) {
+		Properties copy = new Properties();
+		copy.putAll(meta);
+		return copy;
+	}
+
+	/**
+	 * Reads the properties for a page, or returns null if we don't have
+	 * both files.
+	 */
+	private static Properties readMeta(File metaFile, File htmlFile) throws IOException {
+		if (!metaFile.exists() || !htmlFile.exists()) {
+			return null;
+		}
+		Properties meta = new Properties();
+		try (InputStream in = new FileInputStream(metaFile)) {
+			meta.load(in);
+		}
+		return meta;
+	}
+
+	private void writeMeta(File metaFile, Properties meta) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		meta.store(out, null);
+		writeAtomically(metaFile, out.toByteArray());
+	}
+
+	private static byte[] readGzip(File file) throws IOException {
+		try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+			return in.readAllBytes();
+		}
+	}
+
+	private void writeGzip(File file, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+		try (OutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		}
+		writeAtomically(file, out.toByteArray());
+	}
+
+	/**
+	 * Writes to a temporary file and renames it, so readers never see
+	 * half a file.
+	 */
+	private void writeAtomically(File file, byte[] data) throws IOException {
+		Files.createDirectories(dir.toPath());
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			try (OutputStream out = new FileOutputStream(temp)) {
+				out.write(data);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * @param key a normalized URL
+	 * @return the hex SHA-1 of the key
+	 */
+	static String fileName(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b: digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-1
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Empties the memory level, so the next lookups come from disk.
+	 */
+	public void clearMemory() {
+		synchronized (memory) {
+			memory.clear();
+		}
+	}
+
+	/**
+	 * @return the number of lookups answered from memory
+	 */
+	public long memoryHits() {
+		return memoryHits.sum();
+	}
+
+	/**
+	 * @return the number of lookups answered from disk without asking the server
+	 */
+	public long diskHits() {
+		return diskHits.sum();
+	}
+
+	/**
+	 * @return the number of lookups where the server said our copy was current
+	 */
+	public long notModified() {
+		return notModified.sum();
+	}
+
+	/**
+	 * @return the number of pages downloaded
+	 */
+	public long downloads() {
+		return downloads.sum();
+	}
+
+	/**
+	 * @return the scheduler
+	 */
+	public PolitenessScheduler scheduler() {
+		return scheduler;
+	}
+}
@@ -0,0 +1,246 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.jsoup.select.Elements;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for PageCache, against a LocalWiki.
+ *
+ */
+public class PageCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalWiki wiki;
+	private PolitenessScheduler scheduler;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		wiki = new LocalWiki(new File(LocalWiki.DEFAULT_DIR), 0, false);
+		scheduler = new PolitenessScheduler(0);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		wiki.close();
+	}
+
+	private PageCache makeCache(int memoryPages, long maxAgeMillis) {
+		return new PageCache(folder.getRoot(), memoryPages, maxAgeMillis, scheduler);
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testMemoryHit() throws IOException {
+		PageCache cache = makeCache(10, 60000);
+		String url = wiki.url("Java_(programming_language)");
+		Elements paragraphs = cache.get(url);
+		assertThat(paragraphs.size(), is(new WikiFetcher(0).readWikipedia(url).size()));
+		assertThat(cache.get(url + "#History"), is(sameInstance(paragraphs)));
+
+		assertThat(cache.downloads(), is(1L));
+		assertThat(cache.memoryHits(), is(1L));
+		// one for the cache, one for readWikipedia
+		assertThat(wiki.requests(), is(2));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testDiskHit() throws IOException {
+		PageCache cache = makeCache(10, 60000);
+		String url = wiki.url("Philosophy");
+		int size = cache.get(url).size();
+
+		// the page is on disk, compressed
+		File[] files = folder.getRoot().listFiles((dir, name) -> name.endsWith(".html.gz"));
+		assertThat(files.length, is(1));
+		assertThat(files[0].length() < new File(LocalWiki.DEFAULT_DIR, "Philosophy").length() / 2, is(true));
+
+		cache.clearMemory();
+		assertThat(cache.get(url).size(), is(size));
+		assertThat(cache.diskHits(), is(1L));
+
+		// a new cache in the same directory finds it too
+		PageCache other = makeCache(10, 60000);
+		assertThat(other.get(url).size(), is(size));
+		assertThat(other.diskHits(), is(1L));
+		assertThat(wiki.requests(), is(1));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testRevalidate() throws IOException {
+		// every lookup checks with the server
+		PageCache cache = makeCache(10, 0);
+		String url = wiki.url("Science");
+		Elements paragraphs = cache.get(url);
+		assertThat(cache.get(url), is(sameInstance(paragraphs)));
+		assertThat(cache.notModified(), is(1L));
+		assertThat(wiki.notModified(), is(1));
+
+		cache.clearMemory();
+		assertThat(cache.get(url).size(), is(paragraphs.size()));
+		assertThat(cache.notModified(), is(2L));
+		assertThat(cache.downloads(), is(1L));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testChanged() throws IOException {
+		PageCache cache = makeCache(10, 0);
+		String url = wiki.url("Science");
+		assertThat(cache.get(url).size() > 1, is(true));
+
+		String html = "<html><body><div id=\"mw-content-text\"><p>Edited.</p></div></body></html>";
+		wiki.setPage("Science", html.getBytes(StandardCharsets.UTF_8));
+		Elements paragraphs = cache.get(url);
+		assertThat(paragraphs.size(), is(1));
+		assertThat(paragraphs.text(), is("Edited."));
+		assertThat(cache.downloads(), is(2L));
+		assertThat(cache.notModified(), is(0L));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testConcurrentMisses() throws InterruptedException {
+		PageCache cache = makeCache(10, 60000);
+		String url = wiki.url("Knowledge");
+		Elements[] results = new Elements[8];
+		Thread[] threads = new Thread[results.length];
+		for (int t=0; t<threads.length; t++) {
+			final int i = t;
+			threads[t] = new Thread(() -> {
+				try {
+					results[i] = cache.get(url);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+
+		// the first miss fetches the page and the others wait for it
+		assertThat(cache.downloads(), is(1L));
+		assertThat(wiki.requests(), is(1));
+		for (Elements paragraphs: results) {
+			assertThat(paragraphs, is(sameInstance(results[0])));
+		}
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testMissDoesNotBlockOtherUrls() throws IOException, InterruptedException {
+		PageCache cache = makeCache(10, 60000);
+		String cached = wiki.url("Science");
+		cache.get(cached);
+		cache.clearMemory();
+
+		// after this request, the next one to the wiki has to wait a second
+		String slow = wiki.url("Knowledge");
+		scheduler.setInterval(PolitenessScheduler.hostOf(slow), 1000);
+		scheduler.acquire(slow);
+		Thread fetcher = new Thread(() -> {
+			try {
+				cache.get(slow);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		fetcher.start();
+		Thread.sleep(100);
+
+		// a disk hit for another page doesn't wait for it
+		long start = System.nanoTime();
+		cache.get(cached);
+		assertThat(System.nanoTime() - start < 500000000L, is(true));
+		assertThat(fetcher.isAlive(), is(true));
+		assertThat(cache.diskHits(), is(1L));
+		fetcher.join();
+		assertThat(cache.downloads(), is(2L));
+	}
+
+	/**
+	 * Test method for {@link PageCache#charsetOf(String)}.
+	 */
+	@Test
+	public void testCharsetOf() {
+		assertThat(PageCache.charsetOf("text/html; charset=UTF-8"), is("UTF-8"));
+		assertThat(PageCache.charsetOf("text/html;Charset=\"iso-8859-1\""), is("iso-8859-1"));
+		assertThat(PageCache.charsetOf("text/html"), is(nullValue()));
+		assertThat(PageCache.charsetOf("text/html; charset=no-such-charset"), is(nullValue()));
+		assertThat(PageCache.charsetOf(null), is(nullValue()));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test
+	public void testLru() throws IOException {
+		PageCache cache = makeCache(2, 60000);
+		cache.get(wiki.url("Science"));
+		cache.get(wiki.url("Knowledge"));
+		cache.get(wiki.url("Science"));
+		cache.get(wiki.url("Awareness"));
+
+		// Knowledge was the least recently used, so it went to disk
+		cache.get(wiki.url("Science"));
+		cache.get(wiki.url("Knowledge"));
+		assertThat(cache.memoryHits(), is(2L));
+		assertThat(cache.diskHits(), is(1L));
+		assertThat(cache.downloads(), is(3L));
+	}
+
+	/**
+	 * Test method for {@link PageCache#get(String)}.
+	 */
+	@Test(expected = IOException.class)
+	public void testNotFound() throws IOException {
+		makeCache(10, 60000).get(wiki.url("No_such_page"));
+	}
+
+	/**
+	 * Test method for {@link WikiFetcher#fetchWikipedia(String)}.
+	 */
+	@Test
+	public void testFetcher() throws IOException {
+		PageCache cache = makeCache(10, 60000);
+		WikiFetcher wf = new WikiFetcher(cache);
+		String url = wiki.url("Mathematics");
+		assertThat(wf.fetchWikipedia(url), is(sameInstance(wf.fetchWikipedia(url))));
+		assertThat(wiki.requests(), is(1));
+		assertThat(scheduler.requests(), is(1L));
+	}
+}
@@ -0,0 +1,202 @@
+package com.allendowney.thinkdast;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps requests to each host at least a minimum interval apart.
+ *
+ * Each host has its own slot, which holds the earliest time the next
+ * request may start.  A thread that wants to make a request reserves the
+ * next time in the slot, moving it forward by the interval, and then
+ * sleeps until its reserved time, outside of any lock.  So threads
+ * waiting for the same host go one interval apart, in the order they
+ * asked, while requests to other hosts go ahead in parallel.
+ *
+ * The scheduler also counts requests and the time spent waiting, in
+ * total and for each host.
+ *
+ * Thread-safe.
+ *
+ */
+public class PolitenessScheduler {
+
+	/**
+	 * The state for one host.
+	 */
+	private class Host {
+		private long intervalNanos;
+		private long next = Long.MIN_VALUE;     // guarded by this
+
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder waits = new LongAdder();
+		private final LongAdder waitNanos = new LongAdder();
+
+		Host(long intervalNanos) {
+			this.intervalNanos = intervalNanos;
+		}
+
+		/**
+		 * Reserves the next start time.
+		 *
+		 * @param now
+		 * @return the reserved time
+		 */
+		synchronized long reserve(long now) {
+			long start = (next == Long.MIN_VALUE || now - next >= 0) ? now : next;
+			next = start + intervalNanos;
+			return start;
+		}
+
+		synchronized void setInterval(long intervalNanos) {
+			this.intervalNanos = intervalNanos;
+		}
+	}
+
+	private final Map<String, Host> hosts = new ConcurrentHashMap<String, Host>();
+	private final long defaultIntervalNanos;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder waits = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+
+	/**
+	 * @param defaultIntervalMillis minimum time between requests to a
+	 *        host, in milliseconds, unless setInterval says otherwise
+	 */
+	public PolitenessScheduler(long defaultIntervalMillis) {
+		if (defaultIntervalMillis < 0) {
+			throw new IllegalArgumentException("interval must not be negative: " + defaultIntervalMillis);
+		}
+		this.defaultIntervalNanos = TimeUnit.MILLISECONDS.toNanos(defaultIntervalMillis);
+	}
+
+	/**
+	 * Sets the interval for one host.
+	 *
+	 * Requests that have already been scheduled keep their times.
+	 *
+	 * @param host a host name, with the port if it isn't the default
+	 * @param intervalMillis
+	 */
+	public void setInterval(String host, long intervalMillis) {
+		if (intervalMillis < 0) {
+			throw new IllegalArgumentException("interval must not be negative: " + intervalMillis);
+		}
+		long nanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		String key = host.toLowerCase(Locale.ROOT);
+		Host slot = hosts.computeIfAbsent(key, k -> new Host(nanos));
+		slot.setInterval(nanos);
+	}
+
+	/**
+	 * Waits until a request to the host of `url` is allowed.
+	 *
+	 * @param url
+	 * @return the time spent waiting, in nanoseconds
+	 * @throws InterruptedException
+	 */
+	public long acquire(String url) throws InterruptedException {
+		Host slot = hosts.computeIfAbsent(hostOf(url), k -> new Host(defaultIntervalNanos));
+		long now = System.nanoTime();
+		long start = slot.reserve(now);
+
+		slot.requests.increment();
+		requests.increment();
+		long wait = start - now;
+		if (wait <= 0) {
+			return 0;
+		}
+		slot.waits.increment();
+		waits.increment();
+		slot.waitNanos.add(wait);
+		waitNanos.add(wait);
+		TimeUnit.NANOSECONDS.sleep(wait);
+		return wait;
+	}
+
+	/**
+	 * Finds the key for a URL: its host and port, in lower case.
+	 *
+	 * Like SeenUrls.normalize, it drops the user info and the default
+	 * port, so every URL for the same server gets the same slot.
+	 *
+	 * @param url
+	 * @return the key, or "" if the URL has no host
+	 */
+	static String hostOf(String url) {
+		URI uri;
+		try {
+			uri = new URI(url);
+		} catch (URISyntaxException e) {
+			return "";
+		}
+		String host = uri.getHost();
+		if (host == null) {
+			// not a server name, so all we can do is drop the user info
+			String authority = uri.getRawAuthority();
+			if (authority == null) {
+				return "";
+			}
+			return authority.substring(authority.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+		}
+		host = host.toLowerCase(Locale.ROOT);
+		String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+		int port = uri.getPort();
+		if (port == -1 || SeenUrls.isDefaultPort(scheme, port)) {
+			return host;
+		}
+		return host + ":" + port;
+	}
+
+	/**
+	 * @return the number of requests scheduled
+	 */
+	public long requests() {
+		return requests.sum();
+	}
+
+	/**
+	 * @return the number of requests that had to wait
+	 */
+	public long waits() {
+		return waits.sum();
+	}
+
+	/**
+	 * @return the total time requests spent waiting, in milliseconds
+	 */
+	public long waitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+	}
+
+	/**
+	 * @param host
+	 * @return the time requests to `host` spent waiting, in milliseconds
+	 */
+	public long waitMillis(String host) {
+		Host slot = hosts.get(host.toLowerCase(Locale.ROOT));
+		return slot == null ? 0 : TimeUnit.NANOSECONDS.toMillis(slot.waitNanos.sum());
+	}
+
+	/**
+	 * Summarizes requests and waiting for each host, in order of host.
+	 *
+	 * @return map from host to "requests, waits, waitMillis"
+	 */
+	public Map<String, String> stats() {
+		Map<String, String> map = new TreeMap<String, String>();
+		for (Map.Entry<String, Host> entry: hosts.entrySet()) {
+			Host slot = entry.getValue();
+			map.put(entry.getKey(), slot.requests.sum() + " requests, " + slot.waits.sum() + " waits, "
+					+ TimeUnit.NANOSECONDS.toMillis(slot.waitNanos.sum()) + " ms waiting");
+		}
+		return map;
+	}
+}
@@ -0,0 +1,102 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for PolitenessScheduler.
+ *
+ */
+public class PolitenessSchedulerTest {
+
+	/**
+	 * Test method for {@link PolitenessScheduler#hostOf(String)}.
+	 */
+	@Test
+	public void testHostOf() {
+		assertThat(PolitenessScheduler.hostOf("https://EN.wikipedia.org/wiki/Java"), is("en.wikipedia.org"));
+		assertThat(PolitenessScheduler.hostOf("http://localhost:8080/wiki/Java"), is("localhost:8080"));
+		assertThat(PolitenessScheduler.hostOf("HTTPS://user:pw@EN.wikipedia.org:443/wiki/Java"), is("en.wikipedia.org"));
+		assertThat(PolitenessScheduler.hostOf("http://en.wikipedia.org:80/wiki/Java"), is("en.wikipedia.org"));
+		assertThat(PolitenessScheduler.hostOf("http://en.wikipedia.org:443/wiki/Java"), is("en.wikipedia.org:443"));
+		assertThat(PolitenessScheduler.hostOf("/wiki/Java"), is(""));
+		assertThat(PolitenessScheduler.hostOf("not a url"), is(""));
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#acquire(String)}.
+	 */
+	@Test
+	public void testOneHost() throws InterruptedException {
+		PolitenessScheduler scheduler = new PolitenessScheduler(100);
+		long start = System.nanoTime();
+		assertThat(scheduler.acquire("http://a.org/1"), is(0L));
+		scheduler.acquire("http://a.org/2");
+		scheduler.acquire("http://a.org/3");
+		long millis = (System.nanoTime() - start) / 1000000;
+
+		assertThat(millis >= 200, is(true));
+		assertThat(scheduler.requests(), is(3L));
+		assertThat(scheduler.waits(), is(2L));
+		assertThat(scheduler.waitMillis() >= 150, is(true));
+		assertThat(scheduler.waitMillis("A.org"), is(scheduler.waitMillis()));
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#acquire(String)}.
+	 */
+	@Test
+	public void testHostsInParallel() throws InterruptedException {
+		PolitenessScheduler scheduler = new PolitenessScheduler(200);
+		List<Thread> threads = new ArrayList<Thread>();
+		long start = System.nanoTime();
+		// three requests to each of four hosts, from two threads per host
+		for (int t=0; t<8; t++) {
+			String host = "http://host" + (t % 4) + ".org/";
+			int n = t < 4 ? 2 : 1;
+			Thread thread = new Thread(() -> {
+				try {
+					for (int i=0; i<n; i++) {
+						scheduler.acquire(host + i);
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+		long millis = (System.nanoTime() - start) / 1000000;
+
+		// each host needs 400 ms; one global interval would take 2200 ms
+		assertThat(millis >= 400, is(true));
+		assertThat(millis < 1500, is(true));
+		assertThat(scheduler.requests(), is(12L));
+		assertThat(scheduler.waits(), is(8L));
+		assertThat(scheduler.stats().size(), is(4));
+		assertThat(scheduler.stats().get("host0.org"), containsString("3 requests, 2 waits"));
+	}
+
+	/**
+	 * Test method for {@link PolitenessScheduler#setInterval(String, long)}.
+	 */
+	@Test
+	public void testSetInterval() throws InterruptedException {
+		PolitenessScheduler scheduler = new PolitenessScheduler(10000);
+		scheduler.setInterval("fast.org", 0);
+		long start = System.nanoTime();
+		for (int i=0; i<10; i++) {
+			scheduler.acquire("http://fast.org/" + i);
+		}
+		assertThat((System.nanoTime() - start) / 1000000 < 1000, is(true));
+		assertThat(scheduler.waits(), is(0L));
+	}
+}
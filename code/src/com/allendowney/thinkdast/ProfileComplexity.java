@@ -0,0 +1,194 @@
+package com.allendowney.thinkdast;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.allendowney.thinkdast.Profiler.Complexity;
+import com.allendowney.thinkdast.Profiler.Sample;
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * Profiles the data structures headlessly and checks their empirical
+ * complexity against what we expect.
+ *
+ * Writes the samples to profile.csv and profile.json in the given
+ * directory (default: current directory) and exits with status 1 if any
+ * fit is clearly worse than expected, so a build can fail on it.  See
+ * the profile-check target in build.xml.
+ *
+ * The complexity is for one call to timeMe(n), which does n operations,
+ * so O(n) here means constant time per operation.
+ *
+ */
+public class ProfileComplexity {
+
+	/**
+	 * One thing to profile and the complexity we expect.
+	 */
+	private static class Case {
+		final String title;
+		final Timeable timeable;
+		final int startN;
+		final Complexity expected;
+
+		Case(String title, Complexity expected, int startN, Timeable timeable) {
+			this.title = title;
+			this.timeable = timeable;
+			this.startN = startN;
+			this.expected = expected;
+		}
+	}
+
+	private static final int END_MILLIS = 200;
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args optional output directory
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : ".");
+		dir.mkdirs();
+
+		List<String> failures = new ArrayList<String>();
+		try (Writer csv = new FileWriter(new File(dir, "profile.csv"));
+			 Writer json = new FileWriter(new File(dir, "profile.json"))) {
+			json.write("[\n");
+			boolean first = true;
+			for (Case c: cases()) {
+				System.out.println("\n" + c.title);
+				Profiler profiler = new Profiler(c.title, c.timeable);
+				List<Sample> samples = profiler.sampleLoop(c.startN, END_MILLIS, RUNS);
+				if (samples.size() < 2) {
+					failures.add(c.title + ": too few samples to fit");
+					continue;
+				}
+				Profiler.writeCsv(c.title, samples, csv);
+				if (!first) {
+					json.write(",\n");
+				}
+				first = false;
+				Profiler.writeJson(c.title, samples, json);
+
+				Complexity fit = Complexity.fit(samples);
+				System.out.println("Fit " + fit + ", expected " + c.expected);
+				if (fit.isRegressionFrom(c.expected)) {
+					failures.add(c.title + ": fit " + fit + ", expected " + c.expected);
+				}
+			}
+			json.write("]\n");
+		}
+
+		if (!failures.isEmpty()) {
+			System.out.println("\nComplexity check failed:");
+			for (String failure: failures) {
+				System.out.println("    " + failure);
+			}
+			System.exit(1);
+		}
+		System.out.println("\nComplexity check passed.");
+	}
+
+	/**
+	 * @return the cases to profile
+	 */
+	private static List<Case> cases() {
+		List<Case> cases = new ArrayList<Case>();
+		cases.add(new Case("MyArrayList add end", Complexity.N, 1000, new Timeable() {
+			List<String> list;
+			public void setup(int n) { list = new MyArrayList<String>(); }
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+				}
+			}
+		}));
+		cases.add(new Case("MyArrayList add beginning", Complexity.N_SQUARED, 1000, new Timeable() {
+			List<String> list;
+			public void setup(int n) { list = new MyArrayList<String>(); }
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add(0, "a string");
+				}
+			}
+		}));
+		cases.add(new Case("MyLinkedList add end", Complexity.N, 1000, new Timeable() {
+			List<String> list;
+			public void setup(int n) { list = new MyLinkedList<String>(); }
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+				}
+			}
+		}));
+		cases.add(new Case("MyLinkedList add beginning", Complexity.N, 1000, new Timeable() {
+			List<String> list;
+			public void setup(int n) { list = new MyLinkedList<String>(); }
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add(0, "a string");
+				}
+			}
+		}));
+		cases.add(mapCase("MyHashMap put", Complexity.N, new MyHashMap<String, Integer>()));
+		cases.add(mapCase("MyTreeMap put", Complexity.N_LOG_N, new MyTreeMap<String, Integer>()));
+		cases.add(new Case("ListSorter mergeSort", Complexity.N_LOG_N, 1000, new Timeable() {
+			ListSorter<Integer> sorter = new ListSorter<Integer>();
+			List<Integer> list;
+			public void setup(int n) { list = randomList(n); }
+			public void timeMe(int n) {
+				sorter.mergeSortInPlace(list, Comparator.<Integer>naturalOrder());
+			}
+		}));
+		return cases;
+	}
+
+	/**
+	 * Makes a case that puts n keys into `map`, after clearing it.
+	 *
+	 * The keys are made in setup, so String.format is not timed.
+	 *
+	 * @param title
+	 * @param expected
+	 * @param map
+	 * @return
+	 */
+	private static Case mapCase(String title, Complexity expected, final Map<String, Integer> map) {
+		return new Case(title, expected, 1000, new Timeable() {
+			String[] keys;
+			public void setup(int n) {
+				map.clear();
+				keys = new String[n];
+				for (int i=0; i<n; i++) {
+					keys[i] = String.format("%10d", i);
+				}
+			}
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					map.put(keys[i], i);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param n
+	 * @return a list of n distinct Integers in random order
+	 */
+	private static List<Integer> randomList(int n) {
+		List<Integer> list = new ArrayList<Integer>(n);
+		for (int i=0; i<n; i++) {
+			list.add(i);
+		}
+		Collections.shuffle(list, new Random(17));
+		return list;
+	}
+}
@@ -0,0 +1,59 @@
+package com.allendowney.thinkdast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Measures how many pages per second ConcurrentCrawler indexes with
+ * different numbers of workers.
+ *
+ * The pages come from a LocalWiki that serves the saved pages in
+ * src/resources.en.wikipedia.org.wiki, waiting a fixed time before each
+ * response like a remote server would, and they go into an in-memory
+ * Index.  With one worker the crawl is sequential, like WikiCrawler.
+ *
+ */
+public class ProfileCrawler {
+
+	/**
+	 * @param args optional latency in milliseconds and number of pages
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		long latency = args.length > 0 ? Long.parseLong(args[0]) : 50;
+		int maxPages = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors, "
+				+ latency + " ms latency, " + maxPages + " pages");
+		try (LocalWiki wiki = new LocalWiki(new File(LocalWiki.DEFAULT_DIR), latency, true)) {
+			// the first round warms up the JIT
+			for (int round=0; round<2; round++) {
+				System.out.println("\nRound " + round);
+				for (int threads=1; threads<=16; threads*=2) {
+					profile(wiki, threads, maxPages);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param wiki
+	 * @param threads
+	 * @param maxPages
+	 * @throws InterruptedException
+	 */
+	private static void profile(LocalWiki wiki, int threads, int maxPages) throws InterruptedException {
+		Index index = new Index();
+		WikiFetcher wf = new WikiFetcher(0);
+		ConcurrentCrawler crawler = new ConcurrentCrawler(wiki.baseUrl(), wf::readWikipedia,
+				index::indexPage, ConcurrentCrawler.DEFAULT_FRONTIER_CAPACITY);
+		crawler.seed(wiki.url("Java_(programming_language)"));
+
+		long startTime = System.nanoTime();
+		int pages = crawler.crawl(threads, maxPages);
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println(String.format("    %2d threads   %4d pages   %6.1f pages/s   %d errors",
+				threads, pages, pages / seconds, crawler.errors()));
+	}
+}
@@ -18,6 +18,7 @@ public class ProfileListAdd {
 		profileArrayListAddBeginning();
 //		profileLinkedListAddBeginning();
 //		profileLinkedListAddEnd();
+//		profileMyLinkedListAddEnd();
 	}
 
 	/**
@@ -92,7 +93,7 @@ public class ProfileListAdd {
 		Timeable timeable = new Timeable() {
 			List<String> list;
 
-			public void setup(int n) {list = new ArrayList<String>(); }
+			public void setup(int n) {list = new LinkedList<String>(); }
 
 			public void timeMe (int n) {
 				for(int i=0; i<n; i++) {
@@ -105,6 +106,28 @@ public class ProfileListAdd {
 		runProfiler ("LinkedList add end", timeable, startN, endMillis);
 	}
 
+	/**
+	 * Characterize the run time of adding to the end of a MyLinkedList
+	 *
+	 * With the tail pointer, this should be linear, like LinkedList.
+	 */
+	public static void profileMyLinkedListAddEnd() {
+		Timeable timeable = new Timeable() {
+			List<String> list;
+
+			public void setup(int n) {list = new MyLinkedList<String>(); }
+
+			public void timeMe (int n) {
+				for(int i=0; i<n; i++) {
+					list.add("a string");
+				}
+			}
+		};
+		int startN = 4000;
+		int endMillis = 1000;
+		runProfiler ("MyLinkedList add end", timeable, startN, endMillis);
+	}
+
 	/**
 	 * Runs the profiles and displays results.
 	 * 
@@ -0,0 +1,59 @@
+package com.allendowney.thinkdast;
+
+import java.util.List;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * Measures the time and the heap allocation of a for-each loop over
+ * MyArrayList and MyLinkedList, using Profiler.sampleLoop.
+ *
+ * The iterators walk the lists in place, so a loop should allocate at
+ * most the iterator itself, no matter how long the list is: the
+ * bytes/op that sampleLoop prints should be close to 0.
+ *
+ */
+public class ProfileListIterate {
+
+	private static final int RUNS = 11;
+
+	/**
+	 * @param args optional time limit for each size, in milliseconds
+	 */
+	public static void main(String[] args) {
+		int endMillis = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		profile("MyArrayList", new MyArrayList<Integer>(), endMillis);
+		profile("MyLinkedList", new MyLinkedList<Integer>(), endMillis);
+	}
+
+	/**
+	 * Iterates through `list` for a range of sizes and prints the time
+	 * and bytes allocated.
+	 *
+	 * @param label
+	 * @param list an empty list
+	 * @param endMillis
+	 */
+	private static void profile(String label, final List<Integer> list, int endMillis) {
+		System.out.println("\n" + label);
+		Timeable timeable = new Timeable() {
+			long sum;
+
+			// n only grows, so the list is filled up to n, not rebuilt
+			public void setup(int n) {
+				while (list.size() < n) {
+					list.add(list.size());
+				}
+			}
+
+			public void timeMe(int n) {
+				long total = 0;
+				for (Integer element: list) {
+					total += element;
+				}
+				sum = total;
+			}
+		};
+		new Profiler(label, timeable).sampleLoop(1000, endMillis, RUNS);
+	}
+}
@@ -16,6 +16,7 @@ public class ProfileMapPut {
 //		profileHashMapPut();
 		profileMyHashMapPut();
 //		profileMyFixedHashMapPut();
+//		profileMyOpenHashMapPut();
 	}
 
 	/**
@@ -57,8 +58,8 @@ public class ProfileMapPut {
 				}
 			}
 		};
-		int startN = 1000;
-		int endMillis = 5000;
+		int startN = 8000;
+		int endMillis = 1000;
 		runProfiler("MyHashMap put", timeable, startN, endMillis);
 	}
 	
@@ -85,6 +86,28 @@ public class ProfileMapPut {
 		runProfiler("MyFixedHashMap put", timeable, startN, endMillis);
 	}
 	
+	/**
+	 * Characterize the run time of putting a key in MyOpenHashMap
+	 */
+	public static void profileMyOpenHashMapPut() {
+		Timeable timeable = new Timeable() {
+			Map<String, Integer> map;
+
+			public void setup(int n) {
+				map = new MyOpenHashMap<String, Integer>();
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					map.put(String.format("%10d", i), i);
+				}
+			}
+		};
+		int startN = 8000;
+		int endMillis = 1000;
+		runProfiler("MyOpenHashMap put", timeable, startN, endMillis);
+	}
+	
 	/**
 	 * Runs the profiles and displays results.
 	 * 
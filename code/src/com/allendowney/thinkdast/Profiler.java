@@ -4,6 +4,15 @@
 package com.allendowney.thinkdast;
 
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.jfree.chart.ChartFactory;
@@ -20,15 +29,19 @@ import org.jfree.ui.ApplicationFrame;
 import org.jfree.ui.RefineryUtilities;
 
 /**
+ * Profiler runs a Timeable for a range of problem sizes.
+ *
+ * timingLoop and plotResults produce a chart, as in the book.
+ * sampleLoop is a headless alternative: it uses System.nanoTime, reports
+ * the min, median and 99th percentile time, the bytes allocated, and
+ * the garbage collections for each size, writes CSV or JSON, and fits
+ * the results to the usual complexity classes.  It doesn't touch AWT,
+ * so it works on machines without a display.
+ *
  * @author downey
  *
  */
-public class Profiler extends ApplicationFrame {
-
-	/**
-	 * This is here because extending ApplicationFrame requires it.
-	 */
-	private static final long serialVersionUID = 1L;
+public class Profiler {
 
 	/**
 	 * Timeable defines the methods an object must provide to work with Profiler
@@ -46,10 +59,11 @@ public class Profiler extends ApplicationFrame {
 		public void timeMe(int n);
 	}
 
+	private String title;
 	private Timeable timeable;
 
 	public Profiler(String title, Timeable timeable) {
-		super(title);
+		this.title = title;
 		this.timeable = timeable;
 	}
 
@@ -69,13 +83,24 @@ public class Profiler extends ApplicationFrame {
 			timeIt(n);
 
 			// then start timing
-			long total = 0;
+			long nanos = 0;
+			long bytes = 0;
+			long gcCount = 0;
+			long gcMillis = 0;
 
 			// run 10 times and add up total runtime
 			for (int j=0; j<10; j++) {
-				total += timeIt(n);
+				Run run = run(n);
+				nanos += run.nanos;
+				bytes += run.bytes;
+				gcCount += run.gcCount;
+				gcMillis += run.gcMillis;
 			}
-			System.out.println(n + ", " + total);
+			// convert once, so runs shorter than 1 ms still count
+			long total = nanos / 1000000;
+			System.out.println(String.format(Locale.ROOT,
+					"%d, %d ms, %.2f bytes/op, %d GCs, %d ms GC",
+					n, total, bytes / (10.0 * n), gcCount, gcMillis));
 
 			// don't store data until we get to 4ms
 			if (total > 4) {
@@ -99,11 +124,60 @@ public class Profiler extends ApplicationFrame {
 	 * @return
 	 */
 	public long timeIt(int n) {
+		return timeItNanos(n) / 1000000;
+	}
+
+	/**
+	 * Invokes setup and timeMe on the embedded Timeable.
+	 *
+	 * @param n
+	 * @return elapsed time in nanoseconds
+	 */
+	public long timeItNanos(int n) {
+		return run(n).nanos;
+	}
+
+	/**
+	 * Invokes setup and timeMe on the embedded Timeable, and measures
+	 * the time, allocation and garbage collection during timeMe.
+	 *
+	 * @param n
+	 * @return
+	 */
+	public Run run(int n) {
 		timeable.setup(n);
-		final long startTime = System.currentTimeMillis();
+		final long startGcCount = gcCount();
+		final long startGcMillis = gcMillis();
+		final long startBytes = allocatedBytes();
+		final long startTime = System.nanoTime();
 		timeable.timeMe(n);
-		final long endTime = System.currentTimeMillis();
-		return endTime - startTime;
+		final long endTime = System.nanoTime();
+		final long endBytes = allocatedBytes();
+		return new Run(endTime - startTime,
+				endBytes - startBytes,
+				gcCount() - startGcCount,
+				gcMillis() - startGcMillis);
+	}
+
+	/**
+	 * The measurements from one call to timeMe.
+	 *
+	 * `bytes` counts only what the calling thread allocated.  The GC
+	 * numbers are for the whole JVM, since a collection stops every
+	 * thread.
+	 */
+	public static class Run {
+		public final long nanos;
+		public final long bytes;
+		public final long gcCount;
+		public final long gcMillis;
+
+		public Run(long nanos, long bytes, long gcCount, long gcMillis) {
+			this.nanos = nanos;
+			this.bytes = bytes;
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
 	}
 
 	/**
@@ -115,6 +189,12 @@ public class Profiler extends ApplicationFrame {
 		double slope = estimateSlope(series);
 		System.out.println("Estimated slope= " + slope);
 
+		if (GraphicsEnvironment.isHeadless()) {
+			// no display, so the slope is all we can show
+			return;
+		}
+		final ApplicationFrame frame = new ApplicationFrame(title);
+
 		final XYSeriesCollection dataset = new XYSeriesCollection();
         dataset.addSeries(series);
 
@@ -138,10 +218,10 @@ public class Profiler extends ApplicationFrame {
         plot.setOutlinePaint(Color.black);
         final ChartPanel chartPanel = new ChartPanel(chart);
         chartPanel.setPreferredSize(new java.awt.Dimension(1000, 600));
-        setContentPane(chartPanel);
-        pack();
-        RefineryUtilities.centerFrameOnScreen(this);
-        setVisible(true);
+        frame.setContentPane(chartPanel);
+        frame.pack();
+        RefineryUtilities.centerFrameOnScreen(frame);
+        frame.setVisible(true);
 	}
 
 	/**
@@ -159,4 +239,336 @@ public class Profiler extends ApplicationFrame {
 		}
 		return regression.getSlope();
 	}
+
+	/**
+	 * Number of untimed runs before each size is measured.
+	 */
+	public static final int WARMUP_RUNS = 3;
+
+	/**
+	 * Samples whose median is less than this many nanoseconds are
+	 * dropped, because they are mostly noise.
+	 */
+	public static final long MIN_NANOS = 100000;
+
+	/**
+	 * Measures timeMe(n) for n = startN, 2*startN, 4*startN, ... until the
+	 * median time exceeds `endMillis`.
+	 *
+	 * For each n, runs timeMe WARMUP_RUNS times untimed, then `runs`
+	 * times timed.  Doesn't use AWT.
+	 *
+	 * @param startN
+	 * @param endMillis
+	 * @param runs number of timed runs for each n
+	 * @return
+	 */
+	public List<Sample> sampleLoop(int startN, int endMillis, int runs) {
+		List<Sample> samples = new ArrayList<Sample>();
+		int n = startN;
+		for (int i=0; i<20; i++) {
+			for (int j=0; j<WARMUP_RUNS; j++) {
+				timeItNanos(n);
+			}
+			Run[] results = new Run[runs];
+			for (int j=0; j<runs; j++) {
+				results[j] = run(n);
+			}
+			Sample sample = new Sample(n, results);
+			System.out.println(sample);
+
+			if (sample.median >= MIN_NANOS) {
+				samples.add(sample);
+			}
+			if (sample.median > endMillis * 1000000L) {
+				break;
+			}
+			n *= 2;
+		}
+		return samples;
+	}
+
+	/**
+	 * Returns the number of bytes this thread has allocated so far.
+	 *
+	 * Works on HotSpot-based JVMs; returns 0 elsewhere.
+	 *
+	 * @return
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of collections so far, summed over all collectors.
+	 *
+	 * @return
+	 */
+	static long gcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, bean.getCollectionCount());
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the total time spent in collections so far, in milliseconds.
+	 *
+	 * @return
+	 */
+	static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, bean.getCollectionTime());
+		}
+		return total;
+	}
+
+	/**
+	 * The measurements for one problem size.
+	 *
+	 * Times are for one call to timeMe(n), in nanoseconds; the per-op
+	 * values divide by n.  The GC numbers are totals over all the runs.
+	 */
+	public static class Sample {
+		public final int n;
+		public final int runs;
+		public final long min;
+		public final long median;
+		public final long p99;
+		public final long bytes;    // median bytes allocated per call
+		public final long gcCount;
+		public final long gcMillis;
+
+		public Sample(int n, Run[] results) {
+			this.n = n;
+			this.runs = results.length;
+			long[] nanos = new long[runs];
+			long[] bytes = new long[runs];
+			long gcCount = 0;
+			long gcMillis = 0;
+			for (int i=0; i<runs; i++) {
+				nanos[i] = results[i].nanos;
+				bytes[i] = results[i].bytes;
+				gcCount += results[i].gcCount;
+				gcMillis += results[i].gcMillis;
+			}
+			Arrays.sort(nanos);
+			this.min = nanos[0];
+			this.median = percentile(nanos, 0.5);
+			this.p99 = percentile(nanos, 0.99);
+			Arrays.sort(bytes);
+			this.bytes = percentile(bytes, 0.5);
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
+
+		public double nanosPerOp() {
+			return (double) median / n;
+		}
+
+		public double bytesPerOp() {
+			return (double) bytes / n;
+		}
+
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"%d, min %d, median %d, p99 %d ns, %.2f ns/op, %.2f bytes/op, %d GCs in %d ms",
+					n, min, median, p99, nanosPerOp(), bytesPerOp(), gcCount, gcMillis);
+		}
+	}
+
+	/**
+	 * @param sorted values in ascending order
+	 * @param p between 0 and 1
+	 * @return
+	 */
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	/**
+	 * The complexity classes we fit, in increasing order of growth.
+	 *
+	 * Each one is a model t(n) = c f(n) for the time of timeMe(n).
+	 */
+	public enum Complexity {
+		CONSTANT("O(1)") {
+			double f(double n) { return 1; }
+		},
+		LOG_N("O(log n)") {
+			double f(double n) { return Math.log(n); }
+		},
+		N("O(n)") {
+			double f(double n) { return n; }
+		},
+		N_LOG_N("O(n log n)") {
+			double f(double n) { return n * Math.log(n); }
+		},
+		N_SQUARED("O(n^2)") {
+			double f(double n) { return n * n; }
+		};
+
+		private final String label;
+
+		private Complexity(String label) {
+			this.label = label;
+		}
+
+		abstract double f(double n);
+
+		/**
+		 * Fits c to minimize the relative error of c f(n) against the
+		 * median times, and returns the RMS relative error.
+		 *
+		 * Relative error weights small and large n equally, so the
+		 * largest sizes don't swamp the fit.
+		 *
+		 * @param samples
+		 * @return
+		 */
+		public double error(List<Sample> samples) {
+			// with r = f(n) / t, minimizing sum (1 - c r)^2 gives
+			// c = sum r / sum r^2
+			double sumR = 0;
+			double sumR2 = 0;
+			for (Sample sample: samples) {
+				double r = f(sample.n) / sample.median;
+				sumR += r;
+				sumR2 += r * r;
+			}
+			double c = sumR / sumR2;
+			double total = 0;
+			for (Sample sample: samples) {
+				double e = 1 - c * f(sample.n) / sample.median;
+				total += e * e;
+			}
+			return Math.sqrt(total / samples.size());
+		}
+
+		/**
+		 * Returns the complexity class that best fits `samples`.
+		 *
+		 * @param samples at least two
+		 * @return
+		 */
+		public static Complexity fit(List<Sample> samples) {
+			if (samples.size() < 2) {
+				throw new IllegalArgumentException("need at least two samples to fit");
+			}
+			Complexity best = null;
+			double bestError = Double.POSITIVE_INFINITY;
+			for (Complexity model: values()) {
+				double error = model.error(samples);
+				if (error < bestError) {
+					best = model;
+					bestError = error;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Checks whether this class is clearly worse than `expected`.
+		 *
+		 * Over a few doublings, n and n log n (or 1 and log n) are hard
+		 * to tell apart, so only a difference of more than one class
+		 * counts.
+		 *
+		 * @param expected
+		 * @return
+		 */
+		public boolean isRegressionFrom(Complexity expected) {
+			return ordinal() > expected.ordinal() + 1;
+		}
+
+		public String toString() {
+			return label;
+		}
+	}
+
+	/**
+	 * Writes samples as CSV, one row per problem size.
+	 *
+	 * @param title
+	 * @param samples
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeCsv(String title, List<Sample> samples, Writer out) throws IOException {
+		out.write("title,n,min_ns,median_ns,p99_ns,ns_per_op,bytes_per_op,runs,gc_count,gc_ms\n");
+		for (Sample sample: samples) {
+			out.write(String.format(Locale.ROOT, "\"%s\",%d,%d,%d,%d,%.3f,%.3f,%d,%d,%d\n",
+					title.replace("\"", "\"\""), sample.n, sample.min, sample.median,
+					sample.p99, sample.nanosPerOp(), sample.bytesPerOp(),
+					sample.runs, sample.gcCount, sample.gcMillis));
+		}
+	}
+
+	/**
+	 * Writes samples and the fitted complexity as a JSON object.
+	 *
+	 * @param title
+	 * @param samples
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeJson(String title, List<Sample> samples, Writer out) throws IOException {
+		out.write("{\"title\": \"" + jsonEscape(title) + "\"");
+		if (samples.size() >= 2) {
+			out.write(", \"complexity\": \"" + Complexity.fit(samples) + "\"");
+			out.write(", \"slope\": " + String.format(Locale.ROOT, "%.3f", logLogSlope(samples)));
+		}
+		out.write(", \"samples\": [");
+		for (int i=0; i<samples.size(); i++) {
+			Sample sample = samples.get(i);
+			out.write(i == 0 ? "\n" : ",\n");
+			out.write(String.format(Locale.ROOT,
+					"  {\"n\": %d, \"min_ns\": %d, \"median_ns\": %d, \"p99_ns\": %d, "
+					+ "\"ns_per_op\": %.3f, \"bytes_per_op\": %.3f, "
+					+ "\"runs\": %d, \"gc_count\": %d, \"gc_ms\": %d}",
+					sample.n, sample.min, sample.median, sample.p99,
+					sample.nanosPerOp(), sample.bytesPerOp(),
+					sample.runs, sample.gcCount, sample.gcMillis));
+		}
+		out.write("]}\n");
+	}
+
+	/**
+	 * Like estimateSlope, but for Samples: the slope of log(median) vs log(n).
+	 *
+	 * @param samples
+	 * @return
+	 */
+	public static double logLogSlope(List<Sample> samples) {
+		SimpleRegression regression = new SimpleRegression();
+		for (Sample sample: samples) {
+			regression.addData(Math.log(sample.n), Math.log(sample.median));
+		}
+		return regression.getSlope();
+	}
+
+	/**
+	 * @param s
+	 * @return `s` with quotes, backslashes and control characters escaped
+	 */
+	private static String jsonEscape(String s) {
+		StringBuilder sb = new StringBuilder();
+		for (char c: s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
 }
@@ -0,0 +1,101 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Test;
+
+import com.allendowney.thinkdast.Profiler.Complexity;
+import com.allendowney.thinkdast.Profiler.Run;
+import com.allendowney.thinkdast.Profiler.Sample;
+
+/**
+ * Tests for the complexity fit that profile-check uses, with synthetic
+ * samples instead of real timings.
+ *
+ */
+public class ProfilerTest {
+
+	/**
+	 * Makes samples for n = 1000, 2000, ... 128000, with median time
+	 * f(n) nanoseconds, off by up to `noise` (a fraction) in a fixed
+	 * pattern.
+	 */
+	private static List<Sample> samples(DoubleUnaryOperator f, double noise) {
+		List<Sample> samples = new ArrayList<Sample>();
+		int i = 0;
+		for (int n=1000; n<=128000; n*=2) {
+			double wobble = 1 + noise * (i++ % 2 == 0 ? 1 : -1);
+			long nanos = (long) (f.applyAsDouble(n) * wobble);
+			Run run = new Run(nanos, 0, 0, 0);
+			samples.add(new Sample(n, new Run[] {run, run, run}));
+		}
+		return samples;
+	}
+
+	/**
+	 * Test method for {@link Complexity#fit(List)}.
+	 */
+	@Test
+	public void testFit() {
+		assertThat(Complexity.fit(samples(n -> 50000, 0)), is(Complexity.CONSTANT));
+		assertThat(Complexity.fit(samples(n -> 10 * n, 0)), is(Complexity.N));
+		assertThat(Complexity.fit(samples(n -> 10 * n * Math.log(n), 0)), is(Complexity.N_LOG_N));
+		assertThat(Complexity.fit(samples(n -> n * n, 0)), is(Complexity.N_SQUARED));
+	}
+
+	/**
+	 * Test method for {@link Complexity#fit(List)}.
+	 */
+	@Test
+	public void testFitNoisy() {
+		assertThat(Complexity.fit(samples(n -> 10 * n, 0.1)), is(Complexity.N));
+		assertThat(Complexity.fit(samples(n -> n * n, 0.1)), is(Complexity.N_SQUARED));
+	}
+
+	/**
+	 * Test method for {@link Complexity#fit(List)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFitTooFew() {
+		Complexity.fit(samples(n -> 10 * n, 0).subList(0, 1));
+	}
+
+	/**
+	 * Test method for {@link Complexity#isRegressionFrom(Complexity)}.
+	 */
+	@Test
+	public void testIsRegressionFrom() {
+		// one class either way is allowed
+		assertThat(Complexity.N.isRegressionFrom(Complexity.N), is(false));
+		assertThat(Complexity.N_LOG_N.isRegressionFrom(Complexity.N), is(false));
+		assertThat(Complexity.LOG_N.isRegressionFrom(Complexity.CONSTANT), is(false));
+		assertThat(Complexity.N_SQUARED.isRegressionFrom(Complexity.N_LOG_N), is(false));
+		assertThat(Complexity.CONSTANT.isRegressionFrom(Complexity.N_SQUARED), is(false));
+
+		// two or more is a regression
+		assertThat(Complexity.N_SQUARED.isRegressionFrom(Complexity.N), is(true));
+		assertThat(Complexity.N.isRegressionFrom(Complexity.CONSTANT), is(true));
+		assertThat(Complexity.N_SQUARED.isRegressionFrom(Complexity.CONSTANT), is(true));
+	}
+
+	/**
+	 * Test method for {@link Complexity#fit(List)} and
+	 * {@link Complexity#isRegressionFrom(Complexity)}, as profile-check
+	 * uses them.
+	 */
+	@Test
+	public void testCheck() {
+		// a list add that became quadratic fails the check for O(n)
+		Complexity fit = Complexity.fit(samples(n -> n * n, 0.1));
+		assertThat(fit.isRegressionFrom(Complexity.N), is(true));
+
+		// n log n passes it, since it's hard to tell from n
+		fit = Complexity.fit(samples(n -> 10 * n * Math.log(n), 0.1));
+		assertThat(fit.isRegressionFrom(Complexity.N), is(false));
+	}
+}
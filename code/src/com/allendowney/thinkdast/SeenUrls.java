@@ -0,0 +1,220 @@
+package com.allendowney.thinkdast;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which URLs a crawler has already queued, so each page is
+ * queued, fetched and indexed once.
+ *
+ * URLs are normalized first, so links that differ only in case, default
+ * port, fragment or percent-encoding count as the same page.  Then they
+ * go in a BloomFilter, sized from the expected crawl, and an exact set.
+ * The filter answers contains() for new URLs without touching the set;
+ * when it says a URL might have been seen, the set confirms it.
+ *
+ * The exact set is optional.  Without it, the memory is just the
+ * filter's bits, about 1.2 bytes per URL at a 1% false positive rate,
+ * but about 1% of new URLs are wrongly skipped.
+ *
+ * Thread-safe.
+ *
+ */
+public class SeenUrls {
+
+	public static final double DEFAULT_FPP = 0.01;
+
+	private final BloomFilter bloom;
+	private final Set<String> exact;
+
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+
+	/**
+	 * Makes a filter with an exact set and a 1% Bloom filter.
+	 *
+	 * @param expected how many URLs we expect to see
+	 */
+	public SeenUrls(long expected) {
+		this(expected, DEFAULT_FPP, true);
+	}
+
+	/**
+	 * @param expected how many URLs we expect to see
+	 * @param fpp false positive rate of the Bloom filter
+	 * @param exact whether to keep an exact set to confirm positives
+	 */
+	public SeenUrls(long expected, double fpp, boolean exact) {
+		this.bloom = new BloomFilter(expected, fpp);
+		this.exact = exact ? ConcurrentHashMap.newKeySet() : null;
+	}
+
+	/**
+	 * Normalizes `url` and adds it, if it's new.
+	 *
+	 * @param url
+	 * @return the normalized URL if it's new, or null if it has been seen
+	 */
+	public String addIfNew(String url) {
+		String normal = normalize(url);
+		boolean definitelyNew = bloom.put(normal);
+		if (exact == null) {
+			if (!definitelyNew) {
+				duplicates.increment();
+				return null;
+			}
+			return normal;
+		}
+		// two threads can add the same URL at once, so the exact set
+		// decides, even when the filter says it's new
+		if (exact.add(normal)) {
+			if (!definitelyNew) {
+				falsePositives.increment();
+			}
+			return normal;
+		}
+		duplicates.increment();
+		return null;
+	}
+
+	/**
+	 * Removes a URL that was added but couldn't be queued, so a later
+	 * addIfNew() treats it as new.
+	 *
+	 * A Bloom filter can't remove anything, so this only works with the
+	 * exact set.  Without it, the URL stays seen.
+	 *
+	 * @param normal a URL returned by addIfNew()
+	 * @return whether the URL was removed
+	 */
+	public boolean forget(String normal) {
+		return exact != null && exact.remove(normal);
+	}
+
+	/**
+	 * @param url
+	 * @return whether the URL has been added
+	 */
+	public boolean contains(String url) {
+		String normal = normalize(url);
+		if (!bloom.mightContain(normal)) {
+			return false;
+		}
+		return exact == null || exact.contains(normal);
+	}
+
+	/**
+	 * @return the number of URLs rejected as already seen
+	 */
+	public long duplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * @return the number of new URLs the Bloom filter thought it had seen
+	 */
+	public long falsePositives() {
+		return falsePositives.sum();
+	}
+
+	/**
+	 * @return the Bloom filter
+	 */
+	public BloomFilter bloom() {
+		return bloom;
+	}
+
+	/**
+	 * Puts a URL in a standard form.
+	 *
+	 * Lowercases the scheme and host, drops the default port and the
+	 * fragment, removes "." and ".." from the path, uses an empty path
+	 * as "/", and decodes percent-escapes of unreserved characters
+	 * (letters, digits and -._~), with the other escapes in upper case.
+	 * A URL that can't be parsed just loses its fragment.
+	 *
+	 * @param url
+	 * @return
+	 */
+	public static String normalize(String url) {
+		URI uri;
+		try {
+			uri = new URI(url).normalize();
+		} catch (URISyntaxException e) {
+			int hash = url.indexOf('#');
+			return hash < 0 ? url : url.substring(0, hash);
+		}
+		if (uri.isOpaque() || uri.getRawAuthority() == null) {
+			String s = uri.toString();
+			int hash = s.indexOf('#');
+			return hash < 0 ? s : s.substring(0, hash);
+		}
+
+		String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+		StringBuilder sb = new StringBuilder(url.length());
+		if (!scheme.isEmpty()) {
+			sb.append(scheme).append(':');
+		}
+		sb.append("//");
+		if (uri.getRawUserInfo() != null) {
+			sb.append(uri.getRawUserInfo()).append('@');
+		}
+		String host = uri.getHost();
+		sb.append(host == null ? uri.getRawAuthority() : host.toLowerCase(Locale.ROOT));
+		int port = uri.getPort();
+		if (host != null && port != -1 && !isDefaultPort(scheme, port)) {
+			sb.append(':').append(port);
+		}
+		String path = uri.getRawPath();
+		appendEscaped(sb, path == null || path.isEmpty() ? "/" : path);
+		if (uri.getRawQuery() != null) {
+			sb.append('?');
+			appendEscaped(sb, uri.getRawQuery());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param scheme in lower case
+	 * @param port
+	 * @return whether `port` is the one the scheme uses when none is given
+	 */
+	static boolean isDefaultPort(String scheme, int port) {
+		return (port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"));
+	}
+
+	/**
+	 * Appends `s`, decoding escapes of unreserved characters and
+	 * upper-casing the others.
+	 */
+	private static void appendEscaped(StringBuilder sb, String s) {
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '%' && i + 2 < s.length() && isHex(s.charAt(i+1)) && isHex(s.charAt(i+2))) {
+				char decoded = (char) Integer.parseInt(s.substring(i+1, i+3), 16);
+				if (isUnreserved(decoded)) {
+					sb.append(decoded);
+				} else {
+					sb.append('%').append(Character.toUpperCase(s.charAt(i+1)))
+						.append(Character.toUpperCase(s.charAt(i+2)));
+				}
+				i += 2;
+			} else {
+				sb.append(c);
+			}
+		}
+	}
+
+	private static boolean isHex(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+				|| c == '-' || c == '.' || c == '_' || c == '~';
+	}
+}
@@ -0,0 +1,117 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for SeenUrls.
+ *
+ */
+public class SeenUrlsTest {
+
+	/**
+	 * Test method for {@link SeenUrls#normalize(String)}.
+	 */
+	@Test
+	public void testNormalize() {
+		String url = "https://en.wikipedia.org/wiki/Java_(programming_language)";
+		assertThat(SeenUrls.normalize(url), is(url));
+		assertThat(SeenUrls.normalize("HTTPS://En.Wikipedia.ORG:443/wiki/Java_(programming_language)#History"), is(url));
+		assertThat(SeenUrls.normalize("https://en.wikipedia.org/wiki/../wiki/./Java_%28programming%5flanguage%29"),
+				is("https://en.wikipedia.org/wiki/Java_%28programming_language%29"));
+		assertThat(SeenUrls.normalize("http://localhost:8080/wiki/A%2fb?x=%7e"), is("http://localhost:8080/wiki/A%2Fb?x=~"));
+		assertThat(SeenUrls.normalize("http://example.com"), is("http://example.com/"));
+		assertThat(SeenUrls.normalize("/wiki/Java#Syntax"), is("/wiki/Java"));
+		assertThat(SeenUrls.normalize("not a url#really"), is("not a url"));
+	}
+
+	/**
+	 * Test method for {@link SeenUrls#addIfNew(String)}.
+	 */
+	@Test
+	public void testAddIfNew() {
+		SeenUrls seen = new SeenUrls(100);
+		String url = "https://en.wikipedia.org/wiki/Philosophy";
+		assertThat(seen.contains(url), is(false));
+		assertThat(seen.addIfNew(url + "#History"), is(url));
+		assertThat(seen.addIfNew(url), is(nullValue()));
+		assertThat(seen.addIfNew("https://EN.wikipedia.org/wiki/Philosophy"), is(nullValue()));
+		assertThat(seen.contains(url), is(true));
+		assertThat(seen.duplicates(), is(2L));
+	}
+
+	/**
+	 * Test method for {@link SeenUrls#forget(String)}.
+	 */
+	@Test
+	public void testForget() {
+		SeenUrls seen = new SeenUrls(100);
+		String url = seen.addIfNew("https://en.wikipedia.org/wiki/Philosophy");
+		assertThat(seen.forget(url), is(true));
+		assertThat(seen.contains(url), is(false));
+		assertThat(seen.addIfNew(url), is(url));
+
+		// a Bloom filter can't forget
+		SeenUrls approx = new SeenUrls(100, SeenUrls.DEFAULT_FPP, false);
+		url = approx.addIfNew("https://en.wikipedia.org/wiki/Philosophy");
+		assertThat(approx.forget(url), is(false));
+		assertThat(approx.addIfNew(url), is(nullValue()));
+	}
+
+	/**
+	 * Test method for {@link SeenUrls#addIfNew(String)}.
+	 */
+	@Test
+	public void testExact() {
+		// a tiny filter fills up, but the exact set catches its mistakes
+		SeenUrls seen = new SeenUrls(10, 0.1, true);
+		for (int i=0; i<1000; i++) {
+			assertThat(seen.addIfNew("http://example.com/" + i), is(notNullValue()));
+		}
+		assertThat(seen.falsePositives() > 0, is(true));
+		assertThat(seen.duplicates(), is(0L));
+
+		// without it, some new URLs are skipped
+		SeenUrls approx = new SeenUrls(10, 0.1, false);
+		int added = 0;
+		for (int i=0; i<1000; i++) {
+			if (approx.addIfNew("http://example.com/" + i) != null) {
+				added++;
+			}
+		}
+		assertThat(added < 1000, is(true));
+	}
+
+	/**
+	 * Test method for {@link SeenUrls#addIfNew(String)}.
+	 */
+	@Test
+	public void testThreads() throws InterruptedException {
+		SeenUrls seen = new SeenUrls(1000);
+		AtomicInteger added = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t=0; t<4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i=0; i<1000; i++) {
+					if (seen.addIfNew("http://example.com/" + i) != null) {
+						added.incrementAndGet();
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+		// each URL is new exactly once
+		assertThat(added.get(), is(1000));
+		assertThat(seen.duplicates(), is(3000L));
+	}
+}
@@ -24,8 +24,14 @@ public class WikiCrawler {
 	// queue of URLs to be indexed
 	private Queue<String> queue = new LinkedList<String>();
 
-	// fetcher used to get pages from Wikipedia
-	final static WikiFetcher wf = new WikiFetcher();
+	// how many URLs we expect to see, used to size the seen filter
+	public static final int EXPECTED_URLS = 1000000;
+
+	// every URL that has been queued, so each one is queued once
+	private final SeenUrls seen = new SeenUrls(EXPECTED_URLS);
+
+	// fetcher used to get pages from Wikipedia, through a page cache
+	final static WikiFetcher wf = WikiFetcher.cached();
 
 	/**
 	 * Constructor.
@@ -36,7 +42,7 @@ public class WikiCrawler {
 	public WikiCrawler(String source, JedisIndex index) {
 		this.source = source;
 		this.index = index;
-		queue.offer(source);
+		queue.offer(seen.addIfNew(source));
 	}
 
 	/**
@@ -64,13 +70,14 @@ public class WikiCrawler {
 
 		System.out.println("Crawling: " + url + "...");
 
-		Elements paragraphs = testing ? wf.readWikipedia(url) : wf.fetchWikipedia(url);
-
-		if (index.isIndexed(url) & !testing) {
+		// check before fetching, so we don't download pages we already have
+		if (!testing && index.isIndexed(url)) {
 			System.out.println("...Already indexed.");
 			return null;
 		}
 
+		Elements paragraphs = testing ? wf.readWikipedia(url) : wf.fetchWikipedia(url);
+
 		index.indexPage(url, paragraphs);
 		queueInternalLinks(paragraphs);
 
@@ -79,6 +86,9 @@ public class WikiCrawler {
 
 	/**
 	 * Parses paragraphs and adds internal links to the queue.
+	 *
+	 * Links are normalized, and links that have been queued before are
+	 * skipped.
 	 * 
 	 * @param paragraphs
 	 */
@@ -95,9 +105,11 @@ public class WikiCrawler {
 			String relURL = elt.attr("href");
 
 			if (relURL.startsWith("/wiki/")) {
-				String absURL = "https://en.wikipedia.org" + relURL;
+				String absURL = seen.addIfNew("https://en.wikipedia.org" + relURL);
 //				System.out.println(absURL);
-				queue.offer(absURL);
+				if (absURL != null) {
+					queue.offer(absURL);
+				}
 			}
 		}
 	}
@@ -63,15 +63,15 @@ public class WikiCrawlerTest {
 
 		String res = wc.crawl(true);
 		assertThat(url1.equals(res), is(true));
-		assertThat(wc.queueSize(), is(396));
+		assertThat(wc.queueSize(), is(153));
 
 		res = wc.crawl(true);
 		assertThat(url2.equals(res), is(true));
-		assertThat(wc.queueSize(), is(653));
+		assertThat(wc.queueSize(), is(327));
 
 		res = wc.crawl(true);
 		assertThat(url3.equals(res), is(true));
-		assertThat(wc.queueSize(), is(704));
+		assertThat(wc.queueSize(), is(362));
 
 		Map<String, Integer> map = index.getCounts("the");
 
@@ -3,6 +3,7 @@ package com.allendowney.thinkdast;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URL;
 
 import org.jsoup.Connection;
@@ -13,8 +14,83 @@ import org.jsoup.select.Elements;
 
 
 public class WikiFetcher {
-	private long lastRequestTime = -1;
-	private long minInterval = 1000;
+	// waits between requests to the same host
+	private final PolitenessScheduler scheduler;
+
+	// keeps pages we have fetched before, or null
+	private final PageCache cache;
+
+	// offline pages for readWikipedia, or null
+	private final PackedCorpus corpus;
+
+	/**
+	 * Makes a fetcher that waits at least a second between requests to
+	 * the same host.
+	 */
+	public WikiFetcher() {
+		this(1000);
+	}
+
+	/**
+	 * @param minInterval minimum time between requests to the same host,
+	 *        in milliseconds
+	 */
+	public WikiFetcher(long minInterval) {
+		this(new PolitenessScheduler(minInterval));
+	}
+
+	/**
+	 * Makes a fetcher that shares a scheduler, so several fetchers
+	 * together stay within each host's rate.
+	 *
+	 * @param scheduler
+	 */
+	public WikiFetcher(PolitenessScheduler scheduler) {
+		this.scheduler = scheduler;
+		this.cache = null;
+		this.corpus = null;
+	}
+
+	/**
+	 * Makes a fetcher that gets pages through a cache, so pages fetched
+	 * before come from memory or disk.
+	 *
+	 * @param cache
+	 */
+	public WikiFetcher(PageCache cache) {
+		this.scheduler = cache.scheduler();
+		this.cache = cache;
+		this.corpus = null;
+	}
+
+	/**
+	 * Makes a fetcher whose readWikipedia reads pages from a packed
+	 * corpus instead of opening the URL.
+	 *
+	 * @param corpus
+	 */
+	public WikiFetcher(PackedCorpus corpus) {
+		this.scheduler = new PolitenessScheduler(1000);
+		this.cache = null;
+		this.corpus = corpus;
+	}
+
+	/**
+	 * Makes a fetcher with a cache in the default directory, waiting at
+	 * least a second between requests to the same host.
+	 *
+	 * @return
+	 */
+	public static WikiFetcher cached() {
+		return new WikiFetcher(new PageCache(new PolitenessScheduler(1000)));
+	}
+
+	/**
+	 * @return the scheduler, which counts the time spent waiting
+	 */
+	public PolitenessScheduler scheduler() {
+		return scheduler;
+	}
 
 	/**
 	 * Fetches and parses a URL string, returning a list of paragraph elements.
@@ -24,12 +100,24 @@ public class WikiFetcher {
 	 * @throws IOException
 	 */
 	public Elements fetchWikipedia(String url) throws IOException {
-		sleepIfNeeded();
+		if (cache != null) {
+			return cache.get(url);
+		}
+		sleepIfNeeded(url);
 
 		// download and parse the document
 		Connection conn = Jsoup.connect(url);
 		Document doc = conn.get();
+		return paragraphs(doc);
+	}
 
+	/**
+	 * Selects the paragraphs of the content text.
+	 *
+	 * @param doc
+	 * @return
+	 */
+	static Elements paragraphs(Document doc) {
 		// select the content text and pull out the paragraphs.
 		Element content = doc.getElementById("mw-content-text");
 
@@ -46,7 +134,11 @@ public class WikiFetcher {
 	 * @throws IOException
 	 */
 	public Elements readWikipedia(String url) throws IOException {
-		sleepIfNeeded();//I ADDED THIS.
+		if (corpus != null) {
+			// local pages, so there's no need to wait
+			return corpus.paragraphs(PackedCorpus.titleOf(url), url);
+		}
+		sleepIfNeeded(url);//I ADDED THIS.
 //		URL realURL = new URL(url);
 //
 //		// assemble the file name
@@ -72,22 +164,19 @@ public class WikiFetcher {
 	}
 
 	/**
-	 * Rate limits by waiting at least the minimum interval between requests.
+	 * Rate limits by waiting until the scheduler allows a request to the
+	 * host of `url`.
+	 *
+	 * @param url
+	 * @throws InterruptedIOException if the thread is interrupted while waiting
 	 */
-	private void sleepIfNeeded() {
-		if (lastRequestTime != -1) {
-			long currentTime = System.currentTimeMillis();
-			long nextRequestTime = lastRequestTime + minInterval;
-			if (currentTime < nextRequestTime) {
-				try {
-					//System.out.println("Sleeping until " + nextRequestTime);
-					Thread.sleep(nextRequestTime - currentTime);
-				} catch (InterruptedException e) {
-					System.err.println("Warning: sleep interrupted in fetchWikipedia.");
-				}
-			}
+	private void sleepIfNeeded(String url) throws InterruptedIOException {
+		try {
+			scheduler.acquire(url);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting to fetch " + url);
 		}
-		lastRequestTime = System.currentTimeMillis();
 	}
 
 	/**
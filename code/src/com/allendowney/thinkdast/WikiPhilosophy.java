@@ -12,7 +12,8 @@ import org.jsoup.select.Elements;
 public class WikiPhilosophy {
 
     final static List<String> visited = new ArrayList<String>();
-    final static WikiFetcher wf = new WikiFetcher();
+    // pages on the way to Philosophy come up again and again, so keep them
+    final static WikiFetcher wf = WikiFetcher.cached();
 
     /**
      * Tests a conjecture about Wikipedia and Philosophy.
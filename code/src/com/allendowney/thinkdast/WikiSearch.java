@@ -138,6 +138,24 @@ public class WikiSearch {
 	}
 
 
+	/**
+	 * Returns the `k` most relevant results, in increasing order of relevance.
+	 *
+	 * Unlike sort(), this keeps only `k` entries at a time, so it is
+	 * cheap even when there are millions of results.
+	 *
+	 * @param k
+	 * @return List of entries with URL and relevance.
+	 */
+	public List<Entry<String, Integer>> topK(int k) {
+		Comparator<Entry<String, Integer>> comparator =
+				(Entry<String, Integer> a, Entry<String, Integer> b) -> {
+			return Integer.compare(a.getValue(), b.getValue());
+		};
+		ListSorter<Entry<String, Integer>> sorter = new ListSorter<Entry<String, Integer>>();
+		return sorter.topK(k, map.entrySet().iterator(), comparator);
+	}
+
 	/**
 	 * Performs a search and makes a WikiSearch object.
 	 *
@@ -90,4 +90,15 @@ public class WikiSearchTest {
 		assertThat(list.get(1).getValue(), is(5));
 		assertThat(list.get(2).getValue(), is(7));
 	}
+
+	/**
+	 * Test method for {@link WikiSearch#topK(int)}.
+	 */
+	@Test
+	public void testTopK() {
+		List<Entry<String, Integer>> list = search2.topK(2);
+		assertThat(list.size(), is(2));
+		assertThat(list.get(0).getKey(), is("Page3"));
+		assertThat(list.get(1).getKey(), is("Page4"));
+	}
 }